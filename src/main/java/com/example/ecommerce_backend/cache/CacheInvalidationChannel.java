@@ -0,0 +1,197 @@
+package com.example.ecommerce_backend.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache invalidations to the other nodes through PostgreSQL
+ * LISTEN/NOTIFY, so no extra infrastructure is needed.
+ *
+ * A NOTIFY issued inside a transaction is delivered only when it commits.
+ * Messages from this node are ignored on receipt: local caches invalidate
+ * themselves directly. Delivery is best effort; caches keep their TTL as
+ * a backstop for messages lost while a listener reconnects.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationChannel {
+
+    private static final String PG_CHANNEL = "cache_invalidation";
+    private static final char SEPARATOR = '|';
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+    private final List<Runnable> connectListeners = new CopyOnWriteArrayList<>();
+
+    @Value("${application.cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.cache.invalidation.poll-timeout-ms:5000}")
+    private int pollTimeoutMs;
+
+    @Value("${application.cache.invalidation.reconnect-delay-ms:5000}")
+    private long reconnectDelayMs;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private Thread listener;
+
+    public CacheInvalidationChannel(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    public void subscribe(String topic, Consumer<String> handler) {
+        subscribers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+    
+    /**
+     * Registers a callback run on the listener thread each time it (re)connects.
+     * Messages published while it was disconnected are lost, so state that
+     * depends on them must be resynchronised here. Callbacks must not block.
+     *
+     * If the listener is already connected the callback also runs once right
+     * away, on the caller's thread, so a late registration does not miss the
+     * connect that already happened.
+     */
+    public void onConnect(Runnable callback) {
+        synchronized (connectListeners) {
+            connectListeners.add(callback);
+            if (connected) {
+                callback.run();
+            }
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * @return true while messages from other nodes are being received
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Sends a message to the other nodes; joins the current transaction if there is one.
+     */
+    public void publish(String topic, String payload) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class,
+                    PG_CHANNEL, nodeId + SEPARATOR + topic + SEPARATOR + payload);
+        } catch (RuntimeException e) {
+            // Remote caches fall back to their TTL
+            log.warn("Failed to publish cache invalidation for {}: {}", topic, e.getMessage());
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    log.info("Cache invalidation channel disabled: database is not PostgreSQL");
+                    return;
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + PG_CHANNEL);
+                }
+                log.info("Listening for cache invalidations on node {}", nodeId);
+                // Callbacks run first, so state they reset is never read as connected and current.
+                // Under the lock, a callback registered meanwhile runs either here or in onConnect
+                synchronized (connectListeners) {
+                    for (Runnable callback : connectListeners) {
+                        try {
+                            callback.run();
+                        } catch (RuntimeException e) {
+                            log.error("Cache invalidation connect callback failed: {}", e.getMessage());
+                        }
+                    }
+                    connected = true;
+                }
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                connected = false;
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener lost its connection: {}", e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String message) {
+        int first = message.indexOf(SEPARATOR);
+        int second = message.indexOf(SEPARATOR, first + 1);
+        if (first < 0 || second < 0 || message.substring(0, first).equals(nodeId)) {
+            return;
+        }
+
+        String topic = message.substring(first + 1, second);
+        String payload = message.substring(second + 1);
+        for (Consumer<String> handler : subscribers.getOrDefault(topic, List.of())) {
+            try {
+                handler.accept(payload);
+            } catch (RuntimeException e) {
+                log.error("Cache invalidation handler for {} failed: {}", topic, e.getMessage());
+            }
+        }
+    }
+}
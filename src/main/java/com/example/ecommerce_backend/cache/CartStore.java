@@ -0,0 +1,442 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.dto.response.CartResponse;
+import com.example.ecommerce_backend.dto.response.CartResponse.CartItemResponse;
+import com.example.ecommerce_backend.repository.CartItemRepository;
+import com.example.ecommerce_backend.repository.CartRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded, node-local store of cart snapshots keyed by userId.
+ *
+ * Snapshots are immutable once published: every change builds a new
+ * {@link CartResponse}. In WRITE_BEHIND mode, quantity changes on lines
+ * that are already persisted are applied to the snapshot immediately and
+ * coalesced per line until the next flush, an eviction, or an explicit
+ * {@link #flush(Long)} before a DB-backed mutation. Versions are only ever
+ * assigned by the database: a snapshot with pending changes keeps the last
+ * persisted version until the flush returns the new one.
+ *
+ * Changes made inside a transaction reach the cache only after it commits.
+ * Every change, including each write-behind flush, also drops the user's
+ * snapshot on the other nodes through {@link CacheInvalidationChannel};
+ * they reload it on the next read.
+ *
+ * An entry leaving the cache is removed first and flushed afterwards, so no
+ * change can be queued on it in between. If that flush fails, the entry is
+ * kept aside until a later flush persists its changes.
+ */
+@Slf4j
+@Component
+public class CartStore {
+
+    public enum WriteMode {
+        WRITE_THROUGH,
+        WRITE_BEHIND
+    }
+
+    /**
+     * Validates a quantity change against the current snapshot and
+     * returns the new quantity for the line. Throws to reject the change.
+     */
+    @FunctionalInterface
+    public interface QuantityChange {
+        int apply(CartResponse cart, CartItemResponse item);
+    }
+
+    private static final class Entry {
+        private CartResponse snapshot;
+        private final Map<Long, Integer> pendingQuantities = new HashMap<>();
+        private final Object flushLock = new Object();
+        // Set once the entry has left the cache; no further changes are queued on it
+        private boolean detached;
+
+        private Entry(CartResponse snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    private static final String TOPIC = "cart";
+    private static final int GENERATION_STRIPES = 64;
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationChannel invalidationChannel;
+    private final boolean enabled;
+    private final WriteMode writeMode;
+    private final Cache<Long, Entry> carts;
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    // Removed entries whose final flush failed, kept until their changes are persisted
+    private final Map<Long, Entry> unflushed = new ConcurrentHashMap<>();
+    // Bumped on every change, so a read that started before it does not cache what it loaded
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public CartStore(
+            CartRepository cartRepository,
+            CartItemRepository cartItemRepository,
+            PlatformTransactionManager transactionManager,
+            CacheInvalidationChannel invalidationChannel,
+            MeterRegistry meterRegistry,
+            @Value("${application.cart.cache.enabled:true}") boolean enabled,
+            @Value("${application.cart.cache.write-mode:WRITE_THROUGH}") WriteMode writeMode,
+            @Value("${application.cart.cache.max-size:10000}") long maxSize,
+            @Value("${application.cart.cache.expire-after-access-minutes:30}") long expireAfterAccessMinutes
+    ) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invalidationChannel = invalidationChannel;
+        this.enabled = enabled;
+        this.writeMode = writeMode;
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMinutes(expireAfterAccessMinutes))
+                .evictionListener((Long userId, Entry entry, RemovalCause cause) -> {
+                    if (userId != null && entry != null) {
+                        flushRemoved(userId, entry);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, carts, "carts");
+        invalidationChannel.subscribe(TOPIC, payload -> {
+            if (this.enabled) {
+                evictLocal(Long.valueOf(payload));
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isWriteBehind() {
+        return enabled && writeMode == WriteMode.WRITE_BEHIND;
+    }
+
+    /**
+     * @return the cached snapshot, or null on a miss
+     */
+    public CartResponse get(Long userId) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = carts.getIfPresent(userId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            return entry.snapshot;
+        }
+    }
+
+    /**
+     * Call before loading a cart from the database for {@link #putIfAbsent}.
+     */
+    public long generation(Long userId) {
+        return generations.get(stripe(userId));
+    }
+
+    /**
+     * Caches a snapshot loaded by a read, unless a mutation already cached a
+     * newer one or changed the cart since {@code generation} was taken.
+     */
+    public void putIfAbsent(Long userId, CartResponse cart, long generation) {
+        if (!enabled) {
+            return;
+        }
+        carts.asMap().computeIfAbsent(userId, id ->
+                generations.get(stripe(id)) == generation ? new Entry(cart) : null);
+    }
+
+    /**
+     * Replaces the snapshot after a persisted (write-through) mutation.
+     * Inside a transaction the snapshot is dropped after commit instead.
+     */
+    public void put(Long userId, CartResponse cart) {
+        if (!enabled) {
+            return;
+        }
+        invalidationChannel.publish(TOPIC, userId.toString());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            afterCommit(() -> evictLocal(userId));
+            return;
+        }
+        generations.incrementAndGet(stripe(userId));
+        carts.asMap().compute(userId, (id, entry) -> {
+            if (entry == null) {
+                return new Entry(cart);
+            }
+            synchronized (entry) {
+                // Concurrent mutations can finish out of order: keep the newer snapshot
+                if (isAtLeastAsNew(cart, entry.snapshot)) {
+                    entry.snapshot = cart;
+                }
+            }
+            return entry;
+        });
+    }
+
+    /**
+     * Drops the snapshot here and on the other nodes. Within a transaction
+     * the local eviction happens after commit, so a concurrent read cannot
+     * re-cache the old cart in between.
+     */
+    public void invalidate(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        flush(userId);
+        invalidationChannel.publish(TOPIC, userId.toString());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            afterCommit(() -> evictLocal(userId));
+        } else {
+            evictLocal(userId);
+        }
+    }
+
+    /**
+     * @return userIds of all carts currently cached on this node
+     */
+    public List<Long> cachedUserIds() {
+        return enabled ? List.copyOf(carts.asMap().keySet()) : List.of();
+    }
+
+    /**
+     * Replaces a cached snapshot with a derived one, e.g. after revalidating
+     * it against the catalog. The function runs under the entry lock against
+     * the latest snapshot, so concurrent mutations are not lost. The version
+     * is left to the function: derived data does not change the cart itself.
+     */
+    public void refresh(Long userId, UnaryOperator<CartResponse> change) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = carts.getIfPresent(userId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.snapshot = change.apply(entry.snapshot);
+        }
+    }
+
+    /**
+     * Applies a quantity change to a cached line without touching the database.
+     * The new quantity is queued for write-behind.
+     *
+     * @return the new snapshot, or null when the cart or line is not cached
+     *         and the caller must fall back to a persisted mutation
+     */
+    public CartResponse updateQuantity(Long userId, Predicate<CartItemResponse> line, QuantityChange change) {
+        if (!isWriteBehind()) {
+            return null;
+        }
+        Entry entry = carts.getIfPresent(userId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            if (entry.detached) {
+                return null;
+            }
+            CartItemResponse item = entry.snapshot.getItems().stream()
+                    .filter(line)
+                    .findFirst()
+                    .orElse(null);
+            if (item == null || item.getId() == null) {
+                return null;
+            }
+
+            int quantity = change.apply(entry.snapshot, item);
+            entry.snapshot = withQuantity(entry.snapshot, item.getId(), quantity);
+            entry.pendingQuantities.put(item.getId(), quantity);
+            dirtyUsers.add(userId);
+            return entry.snapshot;
+        }
+    }
+
+    /**
+     * Persists pending write-behind changes for one user. Must be called
+     * before any mutation that loads the cart entity from the database.
+     */
+    public void flush(Long userId) {
+        if (!dirtyUsers.contains(userId)) {
+            return;
+        }
+        // Older changes first, so they cannot overwrite newer ones
+        Entry removed = unflushed.get(userId);
+        if (removed != null) {
+            flushEntry(userId, removed);
+            unflushed.remove(userId, removed);
+        }
+        Entry entry = carts.getIfPresent(userId);
+        if (entry != null) {
+            flushEntry(userId, entry);
+        } else if (removed == null) {
+            markClean(userId, null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.cart.cache.flush-interval-ms:1000}")
+    public void flushDirty() {
+        for (Long userId : List.copyOf(dirtyUsers)) {
+            try {
+                flush(userId);
+            } catch (RuntimeException e) {
+                log.error("Failed to flush cart for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flushDirty();
+    }
+
+    private void flushEntry(Long userId, Entry entry) {
+        synchronized (entry.flushLock) {
+            Long cartId;
+            Map<Long, Integer> pending;
+            synchronized (entry) {
+                cartId = entry.snapshot.getId();
+                pending = new HashMap<>(entry.pendingQuantities);
+                entry.pendingQuantities.clear();
+            }
+            markClean(userId, entry);
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                Long version = transactionTemplate.execute(status -> {
+                    pending.forEach((itemId, quantity) ->
+                            cartItemRepository.updateQuantity(itemId, quantity, now));
+                    return cartRepository.refreshTotals(cartId, now);
+                });
+                synchronized (entry) {
+                    // A write-through mutation may have replaced the snapshot meanwhile
+                    if (version != null && version > entry.snapshot.getVersion()) {
+                        entry.snapshot = entry.snapshot.toBuilder().version(version).build();
+                    }
+                }
+                invalidationChannel.publish(TOPIC, userId.toString());
+                log.debug("Flushed {} cart line(s) for user {} at version {}", pending.size(), userId, version);
+            } catch (RuntimeException e) {
+                // Re-queue anything not superseded by a newer change
+                synchronized (entry) {
+                    pending.forEach(entry.pendingQuantities::putIfAbsent);
+                }
+                dirtyUsers.add(userId);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Clears the user's dirty mark unless some entry of theirs still holds
+     * changes: a newer cached entry, an unflushed removed one, or changes
+     * queued on {@code flushed} since its pending map was taken.
+     */
+    private void markClean(Long userId, Entry flushed) {
+        dirtyUsers.remove(userId);
+        Entry removed = unflushed.get(userId);
+        Entry live = carts.getIfPresent(userId);
+        if ((removed != null && removed != flushed) || hasPending(flushed) || (live != flushed && hasPending(live))) {
+            dirtyUsers.add(userId);
+        }
+    }
+
+    private static boolean hasPending(Entry entry) {
+        if (entry == null) {
+            return false;
+        }
+        synchronized (entry) {
+            return !entry.pendingQuantities.isEmpty();
+        }
+    }
+
+    private void evictLocal(Long userId) {
+        generations.incrementAndGet(stripe(userId));
+        Entry entry = carts.asMap().remove(userId);
+        if (entry != null) {
+            flushRemoved(userId, entry);
+        }
+    }
+
+    /**
+     * Persists the last changes of an entry that has left the cache.
+     */
+    private void flushRemoved(Long userId, Entry entry) {
+        synchronized (entry) {
+            entry.detached = true;
+        }
+        try {
+            flushEntry(userId, entry);
+        } catch (RuntimeException e) {
+            // Still dirty: flushDirty retries it
+            unflushed.merge(userId, entry, (older, newer) -> {
+                synchronized (older) {
+                    synchronized (newer) {
+                        newer.pendingQuantities.forEach(older.pendingQuantities::put);
+                    }
+                }
+                return older;
+            });
+            log.error("Failed to flush cart for user {} on eviction: {}", userId, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static boolean isAtLeastAsNew(CartResponse cart, CartResponse current) {
+        return cart.getVersion() == null || current.getVersion() == null
+                || cart.getVersion() >= current.getVersion();
+    }
+
+    private static int stripe(Long userId) {
+        return Math.floorMod(userId.hashCode(), GENERATION_STRIPES);
+    }
+
+    private static CartResponse withQuantity(CartResponse cart, Long itemId, int quantity) {
+        List<CartItemResponse> items = new ArrayList<>(cart.getItems().size());
+        for (CartItemResponse item : cart.getItems()) {
+            items.add(item.getId().equals(itemId) ? item.withQuantity(quantity) : item);
+        }
+        return cart.withItems(items, cart.getVersion());
+    }
+}
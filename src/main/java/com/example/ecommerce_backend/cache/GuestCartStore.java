@@ -0,0 +1,137 @@
+package com.example.ecommerce_backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, TTL-evicted in-memory store of anonymous carts keyed by the
+ * opaque id held in the guest cart cookie.
+ */
+@Component
+public class GuestCartStore {
+
+    /**
+     * Compact guest cart: productSizeId/quantity pairs in parallel
+     * primitive arrays. Carts are small (bounded by the cart limits),
+     * so lookups are linear scans.
+     */
+    public static final class GuestCart {
+
+        private long[] sizeIds = new long[4];
+        private int[] quantities = new int[4];
+        private int size;
+
+        public synchronized int quantityOf(long sizeId) {
+            int index = indexOf(sizeId);
+            return index >= 0 ? quantities[index] : 0;
+        }
+
+        /**
+         * Sets the quantity for a size; zero or less removes the line.
+         */
+        public synchronized void setQuantity(long sizeId, int quantity) {
+            int index = indexOf(sizeId);
+            if (quantity <= 0) {
+                if (index >= 0) {
+                    size--;
+                    sizeIds[index] = sizeIds[size];
+                    quantities[index] = quantities[size];
+                }
+                return;
+            }
+            if (index >= 0) {
+                quantities[index] = quantity;
+                return;
+            }
+            if (size == sizeIds.length) {
+                sizeIds = Arrays.copyOf(sizeIds, size * 2);
+                quantities = Arrays.copyOf(quantities, size * 2);
+            }
+            sizeIds[size] = sizeId;
+            quantities[size] = quantity;
+            size++;
+        }
+
+        public synchronized int lineCount() {
+            return size;
+        }
+
+        public synchronized int totalQuantity() {
+            int total = 0;
+            for (int i = 0; i < size; i++) {
+                total += quantities[i];
+            }
+            return total;
+        }
+
+        public synchronized void clear() {
+            size = 0;
+        }
+
+        /**
+         * @return productSizeId -> quantity, in insertion order
+         */
+        public synchronized Map<Long, Integer> toMap() {
+            Map<Long, Integer> lines = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                lines.put(sizeIds[i], quantities[i]);
+            }
+            return lines;
+        }
+
+        private int indexOf(long sizeId) {
+            for (int i = 0; i < size; i++) {
+                if (sizeIds[i] == sizeId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final Cache<String, GuestCart> carts;
+
+    public GuestCartStore(
+            MeterRegistry meterRegistry,
+            @Value("${application.cart.guest.max-carts:100000}") long maxCarts,
+            @Value("${application.cart.guest.ttl-hours:24}") long ttlHours
+    ) {
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofHours(ttlHours))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, carts, "guest_carts");
+    }
+
+    /**
+     * @return the guest cart, or null if the id is unknown or expired
+     */
+    public GuestCart get(String guestId) {
+        return guestId != null ? carts.getIfPresent(guestId) : null;
+    }
+
+    public GuestCart create(String guestId) {
+        return carts.get(guestId, id -> new GuestCart());
+    }
+
+    public GuestCart remove(String guestId) {
+        return guestId != null ? carts.asMap().remove(guestId) : null;
+    }
+
+    /**
+     * Puts back a cart taken with {@link #remove}, unless the id was reused meanwhile.
+     */
+    public void restore(String guestId, GuestCart cart) {
+        carts.asMap().putIfAbsent(guestId, cart);
+    }
+}
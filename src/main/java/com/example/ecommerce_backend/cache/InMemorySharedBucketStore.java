@@ -0,0 +1,36 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.cache.RateLimitBackend.Limit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+
+/**
+ * In-process stand-in for a shared store, for a single node, development
+ * and tests. Exercises the same pre-fetch path as the database store.
+ */
+public class InMemorySharedBucketStore implements SharedBucketStore {
+
+    private final Bandwidth bandwidth;
+    private final Cache<Long, Bucket> buckets;
+
+    public InMemorySharedBucketStore(Limit limit, long maxBuckets) {
+        this.bandwidth = Bandwidth.builder()
+                .capacity(limit.capacity())
+                .refillIntervally(limit.refillTokens(), limit.refillPeriod())
+                .build();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(limit.fullRefill())
+                .build();
+    }
+
+    @Override
+    public Grant take(long key, long requested) {
+        Bucket bucket = buckets.get(key, k -> Bucket.builder().addLimit(bandwidth).build());
+        long granted = bucket.tryConsumeAsMuchAsPossible(requested);
+        long wait = granted == 0 ? bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill() : 0;
+        return new Grant(granted, bucket.getAvailableTokens(), wait);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.cache.RateLimitBackend.Limit;
+import com.example.ecommerce_backend.repository.RateLimitBucketRepository;
+import com.example.ecommerce_backend.repository.RateLimitBucketRepository.Take;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared buckets in the rate_limit_buckets table. Every take is a single
+ * upsert that refills and consumes atomically on the database clock, so
+ * nodes with skewed clocks still agree.
+ */
+@Slf4j
+public class JdbcSharedBucketStore implements SharedBucketStore {
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final RateLimitBucketRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Limit limit;
+    private final long periodMs;
+
+    public JdbcSharedBucketStore(
+            RateLimitBucketRepository repository,
+            PlatformTransactionManager transactionManager,
+            Limit limit
+    ) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.limit = limit;
+        this.periodMs = limit.refillPeriod().toMillis();
+    }
+
+    @Override
+    public Grant take(long key, long requested) {
+        Take take = transactionTemplate.execute(status ->
+                repository.take(key, requested, limit.capacity(), limit.refillTokens(), periodMs));
+        return new Grant(
+                take.getGranted(),
+                take.getRemaining(),
+                TimeUnit.MILLISECONDS.toNanos(take.getWaitMs()));
+    }
+
+    /**
+     * Drops buckets that have been idle long enough to be full again.
+     * Idempotent, so every node may run it.
+     */
+    @Scheduled(
+            fixedDelayString = "${application.rate-limit.shared.cleanup-interval-ms:300000}",
+            initialDelayString = "${application.rate-limit.shared.cleanup-interval-ms:300000}"
+    )
+    public void deleteIdleBuckets() {
+        long idleMs = limit.fullRefill().toMillis() + periodMs;
+        try {
+            int total = 0;
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> repository.deleteIdle(idleMs, DELETE_BATCH_SIZE));
+                total += deleted;
+            } while (deleted == DELETE_BATCH_SIZE);
+            if (total > 0) {
+                log.debug("Deleted {} idle rate limit buckets", total);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete idle rate limit buckets: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ecommerce_backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Per-node token buckets, held in a size-bounded cache.
+ *
+ * A bucket idle long enough to have refilled completely is
+ * indistinguishable from a new one, so it expires after that time
+ * without changing any limit. Size-based eviction is different: it can
+ * drop a bucket that is still draining, and the client then starts again
+ * from a full bucket, which loosens its limit. Size {@code maxBuckets}
+ * above the number of clients active within one full refill, and alert on
+ * {@code rate_limit.buckets.size_evictions}, which should stay at zero.
+ */
+public class LocalRateLimitBackend implements RateLimitBackend {
+
+    // Rough heap per entry: cache node, boxed key, bucket and its state
+    private static final long ESTIMATED_BYTES_PER_BUCKET = 224;
+
+    // Immutable, shared by every bucket
+    private final Bandwidth bandwidth;
+    private final Cache<Long, Bucket> buckets;
+
+    public LocalRateLimitBackend(Limit limit, long maxBuckets, MeterRegistry meterRegistry) {
+        Counter sizeEvictions = Counter.builder("rate_limit.buckets.size_evictions")
+                .description("Buckets dropped for space before refilling; each one resets a client's limit")
+                .register(meterRegistry);
+
+        // New Bucket4j 8.x API
+        this.bandwidth = Bandwidth.builder()
+                .capacity(limit.capacity())
+                .refillIntervally(limit.refillTokens(), limit.refillPeriod())
+                .build();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(limit.fullRefill())
+                .evictionListener((Long key, Bucket bucket, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        sizeEvictions.increment();
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rate_limit_buckets");
+        Gauge.builder("rate_limit.buckets.memory", buckets, c -> c.estimatedSize() * ESTIMATED_BYTES_PER_BUCKET)
+                .baseUnit("bytes")
+                .description("Estimated heap held by rate limit buckets")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Probe tryConsume(long key) {
+        ConsumptionProbe probe = buckets.get(key, k -> createNewBucket()).tryConsumeAndReturnRemaining(1);
+        return probe.isConsumed()
+                ? Probe.consumed(probe.getRemainingTokens())
+                : Probe.rejected(probe.getNanosToWaitForRefill());
+    }
+
+    private Bucket createNewBucket() {
+        return Bucket.builder()
+                .addLimit(bandwidth)
+                .build();
+    }
+}
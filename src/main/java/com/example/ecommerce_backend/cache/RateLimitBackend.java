@@ -0,0 +1,68 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.util.ClientIpResolver;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Token buckets behind the API rate limit, one per client key.
+ *
+ * Selected by {@code application.rate-limit.backend}: {@code local} keeps
+ * buckets per node, {@code shared} enforces one limit across all nodes.
+ */
+public interface RateLimitBackend {
+
+    // IPv4 and invalid keys live in ff00::/8 (multicast), which is never a source prefix
+    long IPV4_KEY_TAG = 0xFF00_0000_0000_0000L;
+    long INVALID_KEY_TAG = 0xFF01_0000_0000_0000L;
+
+    /**
+     * Takes one token for the client.
+     */
+    Probe tryConsume(long key);
+
+    record Probe(boolean consumed, long remainingTokens, long nanosToWaitForRefill) {
+
+        public static Probe consumed(long remainingTokens) {
+            return new Probe(true, remainingTokens, 0);
+        }
+
+        public static Probe rejected(long nanosToWaitForRefill) {
+            return new Probe(false, 0, nanosToWaitForRefill);
+        }
+    }
+
+    /**
+     * Bucket shape: {@code capacity} tokens, refilled by {@code refillTokens}
+     * at the end of every {@code refillPeriod}.
+     */
+    record Limit(long capacity, long refillTokens, Duration refillPeriod) {
+
+        /**
+         * @return idle time after which any bucket is full again, i.e. equal to a new one
+         */
+        public Duration fullRefill() {
+            return refillPeriod.multipliedBy((capacity + refillTokens - 1) / refillTokens);
+        }
+    }
+
+    /**
+     * Packs a client IP into a primitive key: the IPv4 address, or the /64
+     * prefix of an IPv6 address (one subscriber's allocation, so rotating
+     * within it does not mint new buckets).
+     */
+    static long keyFor(String clientIp) {
+        InetAddress address = ClientIpResolver.parseLiteral(clientIp);
+        if (address == null) {
+            return INVALID_KEY_TAG | (Objects.hashCode(clientIp) & 0xFFFF_FFFFL);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(address.getAddress());
+        if (bytes.capacity() == 4) {
+            return IPV4_KEY_TAG | (bytes.getInt() & 0xFFFF_FFFFL);
+        }
+        return bytes.getLong(); // IPv6 /64 prefix
+    }
+}
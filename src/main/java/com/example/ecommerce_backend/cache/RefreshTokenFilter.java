@@ -0,0 +1,280 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.repository.RefreshTokenRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over the hashes of active refresh tokens, so unknown tokens
+ * are rejected without a database lookup.
+ *
+ * A negative answer is definite; a positive one still goes to the database.
+ * Bloom filters cannot remove entries, so revoked and expired tokens stay
+ * (harmless) members until the periodic rebuild drops them. Tokens created
+ * on other nodes arrive through {@link CacheInvalidationChannel}; while that
+ * channel is disconnected the filter answers "maybe" for everything, and it
+ * is rebuilt on every (re)connect to cover messages missed in between. It
+ * keeps answering "maybe" until a rebuild started after the latest connect
+ * has been swapped in.
+ */
+@Slf4j
+@Component
+public class RefreshTokenFilter {
+
+    private static final String TOPIC = "refresh-token-added";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final CacheInvalidationChannel channel;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+
+    // Channel connects seen, and the connect the current filter was built after
+    private final AtomicLong connects = new AtomicLong();
+    private volatile long readyConnect = -1;
+
+    private final Counter rejectedCounter;
+    private final Counter falsePositiveCounter;
+
+    @Value("${application.security.token.filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.security.token.filter.expected-tokens:1000000}")
+    private long expectedTokens;
+
+    @Value("${application.security.token.filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Filter in use, and the one being filled by a rebuild (receives adds too)
+    private volatile Bits current;
+    private volatile Bits building;
+
+    // Hashes added recently, possibly by transactions the rebuild snapshot cannot see yet
+    private final Cache<String, Boolean> recentlyAdded = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    public RefreshTokenFilter(
+            RefreshTokenRepository refreshTokenRepository,
+            CacheInvalidationChannel channel,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.channel = channel;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rejectedCounter = Counter.builder("refresh_tokens.filter.rejected")
+                .description("Refresh tokens rejected by the filter without a database lookup")
+                .register(meterRegistry);
+        this.falsePositiveCounter = Counter.builder("refresh_tokens.filter.false_positives")
+                .description("Refresh tokens passed by the filter but not found in the database")
+                .register(meterRegistry);
+        Gauge.builder("refresh_tokens.filter.expected_fpp", this, RefreshTokenFilter::expectedFalsePositiveRate)
+                .description("Current expected false-positive rate of the refresh token filter")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        channel.subscribe(TOPIC, this::addLocal);
+        if (channel.isEnabled()) {
+            // Also runs at once if the listener connected before this registration
+            channel.onConnect(() -> {
+                connects.incrementAndGet();
+                CompletableFuture.runAsync(this::rebuild);
+            });
+        } else {
+            CompletableFuture.runAsync(this::rebuild);
+        }
+    }
+
+    /**
+     * @return false only if the token hash is certainly not an active token
+     */
+    public boolean mightContain(String tokenHash) {
+        Bits bits = current;
+        if (!enabled || bits == null) {
+            return true;
+        }
+        if (channel.isEnabled() && (!channel.isConnected() || readyConnect != connects.get())) {
+            return true;
+        }
+        if (bits.mightContain(tokenHash)) {
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Records a token hash on this node and publishes it to the others
+     * (delivered when the current transaction commits).
+     */
+    public void add(String tokenHash) {
+        if (!enabled) {
+            return;
+        }
+        addLocal(tokenHash);
+        channel.publish(TOPIC, tokenHash);
+    }
+
+    /**
+     * Called when a token passed the filter but was not in the database.
+     */
+    public void recordFalsePositive() {
+        falsePositiveCounter.increment();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${application.security.token.filter.rebuild-interval-ms:3600000}",
+            initialDelayString = "${application.security.token.filter.rebuild-interval-ms:3600000}"
+    )
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        // A request made while a rebuild runs is served by another pass once it ends,
+        // since the running one may have read its snapshot before a reconnect
+        rebuildRequested.set(true);
+        while (rebuildRequested.get() && rebuilding.compareAndSet(false, true)) {
+            try {
+                rebuildRequested.set(false);
+                rebuildOnce();
+            } finally {
+                rebuilding.set(false);
+            }
+        }
+    }
+
+    private void rebuildOnce() {
+        try {
+            long connect = connects.get();
+            long started = System.nanoTime();
+            LocalDateTime now = LocalDateTime.now();
+            long active = refreshTokenRepository.countActiveTokens(now);
+
+            Bits next = new Bits(Math.max(expectedTokens, active * 2), falsePositiveRate);
+            building = next;
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<String> hashes = refreshTokenRepository.streamActiveTokenHashes(now)) {
+                    hashes.forEach(next::put);
+                }
+            });
+            recentlyAdded.asMap().keySet().forEach(next::put);
+            current = next;
+            readyConnect = connect;
+
+            log.info("Rebuilt refresh token filter with {} tokens in {} ms",
+                    active, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild refresh token filter: {}", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    private void addLocal(String tokenHash) {
+        recentlyAdded.put(tokenHash, Boolean.TRUE);
+        Bits bits = current;
+        if (bits != null) {
+            bits.put(tokenHash);
+        }
+        Bits next = building;
+        if (next != null) {
+            next.put(tokenHash);
+        }
+    }
+
+    private double expectedFalsePositiveRate() {
+        Bits bits = current;
+        return bits != null ? bits.expectedFalsePositiveRate() : 0.0;
+    }
+
+    /**
+     * Lock-free bit set with k probe positions derived by double hashing.
+     * Token hashes are SHA-256 hex, already uniform, so the two base hashes
+     * are read straight from their first 32 hex digits.
+     */
+    static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long bitSize;
+        private final int probes;
+        private final AtomicLong bitsSet = new AtomicLong();
+
+        Bits(long expectedInsertions, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+            this.words = new AtomicLongArray(wordCount);
+            this.bitSize = wordCount * 64L;
+            this.probes = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        }
+
+        void put(String tokenHash) {
+            long h1 = HexFormat.fromHexDigitsToLong(tokenHash, 0, 16);
+            long h2 = HexFormat.fromHexDigitsToLong(tokenHash, 16, 32);
+            for (int i = 0; i < probes; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long old;
+                do {
+                    old = words.get(word);
+                    if ((old & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, old, old | mask));
+                if ((old & mask) == 0) {
+                    bitsSet.incrementAndGet();
+                }
+            }
+        }
+
+        boolean mightContain(String tokenHash) {
+            long h1 = HexFormat.fromHexDigitsToLong(tokenHash, 0, 16);
+            long h2 = HexFormat.fromHexDigitsToLong(tokenHash, 16, 32);
+            for (int i = 0; i < probes; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double expectedFalsePositiveRate() {
+            return Math.pow((double) bitsSet.get() / bitSize, probes);
+        }
+
+        long bitSize() {
+            return bitSize;
+        }
+
+        int probes() {
+            return probes;
+        }
+    }
+}
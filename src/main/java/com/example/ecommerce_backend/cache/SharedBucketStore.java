@@ -0,0 +1,20 @@
+package com.example.ecommerce_backend.cache;
+
+/**
+ * Bucket state shared by all nodes, for {@link SharedRateLimitBackend}.
+ * Each call is one atomic refill-and-take on the store.
+ */
+public interface SharedBucketStore {
+
+    /**
+     * Refills the key's bucket for the time elapsed, then takes up to
+     * {@code requested} tokens (fewer if fewer are available).
+     */
+    Grant take(long key, long requested);
+
+    /**
+     * @param nanosToWaitForRefill until the next refill, when nothing was granted
+     */
+    record Grant(long granted, long remaining, long nanosToWaitForRefill) {
+    }
+}
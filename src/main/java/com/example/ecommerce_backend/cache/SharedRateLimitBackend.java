@@ -0,0 +1,128 @@
+package com.example.ecommerce_backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * One rate limit across all nodes, kept in a {@link SharedBucketStore}.
+ *
+ * Each node leases tokens from the shared bucket in batches and serves
+ * requests from the lease locally, so a request costs at most one store
+ * round trip and usually none. The batch starts at one token and doubles
+ * (up to the prefetch limit) while leases are used up within a refill
+ * period; a lease left unused for a period expires and the batch drops
+ * back to one, which bounds the tokens a quiet client can strand on a node.
+ * A rejection is remembered until the next refill, so a throttled client
+ * does not reach the store either.
+ *
+ * If the store is unavailable requests are let through (fail open), and
+ * the client's next store attempt waits out a short back-off so a failing
+ * store is not hit on every request. The remaining count reported for a
+ * request is the node's lease only; the shared bucket may hold more.
+ */
+@Slf4j
+public class SharedRateLimitBackend implements RateLimitBackend {
+
+    private static final long STORE_BACKOFF_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final SharedBucketStore store;
+    private final long maxPrefetch;
+    private final long leaseNanos;
+    private final Cache<Long, Allowance> allowances;
+
+    private final Counter fetchCounter;
+    private final Counter localCounter;
+    private final Counter errorCounter;
+
+    public SharedRateLimitBackend(
+            SharedBucketStore store,
+            Limit limit,
+            long maxPrefetch,
+            long maxKeys,
+            MeterRegistry meterRegistry
+    ) {
+        this.store = store;
+        this.maxPrefetch = Math.max(1, Math.min(maxPrefetch, limit.capacity()));
+        this.leaseNanos = limit.refillPeriod().toNanos();
+        this.allowances = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(limit.refillPeriod().multipliedBy(2))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, allowances, "rate_limit_allowances");
+        this.fetchCounter = Counter.builder("rate_limit.shared.fetches")
+                .description("Round trips to the shared rate limit store")
+                .register(meterRegistry);
+        this.localCounter = Counter.builder("rate_limit.shared.local")
+                .description("Rate limit decisions served from a local lease or cached rejection")
+                .register(meterRegistry);
+        this.errorCounter = Counter.builder("rate_limit.shared.errors")
+                .description("Requests let through because the shared store failed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Probe tryConsume(long key) {
+        Allowance allowance = allowances.get(key, k -> new Allowance());
+        long now = System.nanoTime();
+
+        // Per key: concurrent requests for one client wait for a single fetch
+        synchronized (allowance) {
+            boolean leaseLive = allowance.batch > 0 && now - allowance.leasedAt < leaseNanos;
+            if (leaseLive && allowance.tokens > 0) {
+                allowance.tokens--;
+                localCounter.increment();
+                return Probe.consumed(allowance.tokens);
+            }
+            if (now < allowance.blockedUntil) {
+                localCounter.increment();
+                return Probe.rejected(allowance.blockedUntil - now);
+            }
+            if (now < allowance.storeRetryAt) {
+                errorCounter.increment();
+                return Probe.consumed(0);
+            }
+
+            allowance.batch = leaseLive ? Math.min(maxPrefetch, allowance.batch * 2) : 1;
+
+            SharedBucketStore.Grant grant;
+            try {
+                grant = store.take(key, allowance.batch);
+                fetchCounter.increment();
+            } catch (RuntimeException e) {
+                errorCounter.increment();
+                allowance.storeRetryAt = now + STORE_BACKOFF_NANOS;
+                log.debug("Shared rate limit store failed, allowing request: {}", e.getMessage());
+                return Probe.consumed(0);
+            }
+
+            if (grant.granted() == 0) {
+                allowance.tokens = 0;
+                allowance.blockedUntil = now + grant.nanosToWaitForRefill();
+                return Probe.rejected(grant.nanosToWaitForRefill());
+            }
+
+            allowance.tokens = grant.granted() - 1;
+            allowance.leasedAt = now;
+            return Probe.consumed(allowance.tokens);
+        }
+    }
+
+    /**
+     * Tokens leased by this node for one client.
+     */
+    private static final class Allowance {
+        private long tokens;
+        private long batch;
+        private long leasedAt;
+        private long blockedUntil = Long.MIN_VALUE;
+        private long storeRetryAt = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.entity.User;
+import com.example.ecommerce_backend.security.UserSecurityState;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Bounded, TTL-evicted cache of user security state keyed by the
+ * username or email used to log in.
+ *
+ * Concurrent misses on the same key share one load. Entries are evicted
+ * explicitly whenever a user's credentials, role or status change, here
+ * and on the other nodes through {@link CacheInvalidationChannel}.
+ */
+@Component
+public class UserDetailsCache {
+
+    private static final String TOPIC = "user-details";
+    private static final String KEY_SEPARATOR = "\n";
+
+    private final Cache<String, UserSecurityState> users;
+    private final CacheInvalidationChannel invalidationChannel;
+
+    public UserDetailsCache(
+            CacheInvalidationChannel invalidationChannel,
+            MeterRegistry meterRegistry,
+            @Value("${application.security.user-details-cache.max-size:10000}") long maxSize,
+            @Value("${application.security.user-details-cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.invalidationChannel = invalidationChannel;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "user_details");
+        invalidationChannel.subscribe(TOPIC, payload -> users.invalidateAll(List.of(payload.split(KEY_SEPARATOR))));
+    }
+
+    /**
+     * @param loader called once per key on a miss; may return null (not cached)
+     */
+    public UserSecurityState get(String usernameOrEmail, Function<String, UserSecurityState> loader) {
+        return users.get(usernameOrEmail, loader);
+    }
+
+    /**
+     * Evicts the user under their current username and email. Call before
+     * changing either, so the old keys are the ones evicted. Within a
+     * transaction the local eviction happens after commit.
+     */
+    public void evict(User user) {
+        evict(user.getUsername(), user.getEmail());
+    }
+
+    public void evict(String username, String email) {
+        List<String> keys = Stream.of(username, email)
+                .filter(Objects::nonNull)
+                .toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        invalidationChannel.publish(TOPIC, String.join(KEY_SEPARATOR, keys));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    users.invalidateAll(keys);
+                }
+            });
+        } else {
+            users.invalidateAll(keys);
+        }
+    }
+}
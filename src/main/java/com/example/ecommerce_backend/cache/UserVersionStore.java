@@ -0,0 +1,75 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Cached userId -> security version of active users, used to revoke
+ * access tokens without a user lookup per request.
+ *
+ * A token is accepted only while the version it carries is the user's
+ * current one. Disabled and deleted users map to {@link #REVOKED}.
+ * Changes invalidate the entry here and, through
+ * {@link CacheInvalidationChannel}, on the other nodes.
+ */
+@Component
+public class UserVersionStore {
+
+    private static final long REVOKED = -1L;
+    private static final String TOPIC = "user-version";
+
+    private final LoadingCache<Long, Long> versions;
+    private final CacheInvalidationChannel invalidationChannel;
+
+    public UserVersionStore(
+            UserRepository userRepository,
+            CacheInvalidationChannel invalidationChannel,
+            MeterRegistry meterRegistry,
+            @Value("${application.security.user-version.cache-size:100000}") long maxSize,
+            @Value("${application.security.user-version.ttl-seconds:30}") long ttlSeconds
+    ) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build(userId -> userRepository.findActiveSecurityVersion(userId).orElse(REVOKED));
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "user_versions");
+        this.invalidationChannel = invalidationChannel;
+        invalidationChannel.subscribe(TOPIC, payload -> versions.invalidate(Long.valueOf(payload)));
+    }
+
+    /**
+     * @return true if the user is active and the version is their current one
+     */
+    public boolean isCurrent(Long userId, long version) {
+        Long current = versions.get(userId);
+        return current != null && current != REVOKED && current == version;
+    }
+
+    /**
+     * Drops the cached version once the surrounding transaction (if any) commits,
+     * so a concurrent request cannot re-cache the old value in between.
+     */
+    public void invalidate(Long userId) {
+        invalidationChannel.publish(TOPIC, userId.toString());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.invalidate(userId);
+                }
+            });
+        } else {
+            versions.invalidate(userId);
+        }
+    }
+}
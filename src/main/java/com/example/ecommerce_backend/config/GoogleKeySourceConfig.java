@@ -0,0 +1,29 @@
+package com.example.ecommerce_backend.config;
+
+import com.example.ecommerce_backend.security.GoogleKeySource;
+import com.example.ecommerce_backend.security.HttpGoogleKeySource;
+import com.example.ecommerce_backend.security.InMemoryGoogleKeySource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Chooses where Google ID token signing keys come from:
+ * {@code oauth.google.key-source=google} (default) or {@code local}.
+ */
+@Configuration
+public class GoogleKeySourceConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "oauth.google.key-source", havingValue = "google", matchIfMissing = true)
+    public GoogleKeySource googleKeySource() {
+        return new HttpGoogleKeySource();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "oauth.google.key-source", havingValue = "local")
+    public GoogleKeySource localGoogleKeySource(@Value("${oauth.google.local-jwks:}") String jwks) {
+        return InMemoryGoogleKeySource.fromJwks(jwks);
+    }
+}
@@ -1,41 +1,78 @@
 package com.example.ecommerce_backend.config;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
+import com.example.ecommerce_backend.cache.InMemorySharedBucketStore;
+import com.example.ecommerce_backend.cache.JdbcSharedBucketStore;
+import com.example.ecommerce_backend.cache.LocalRateLimitBackend;
+import com.example.ecommerce_backend.cache.RateLimitBackend;
+import com.example.ecommerce_backend.cache.RateLimitBackend.Limit;
+import com.example.ecommerce_backend.cache.SharedBucketStore;
+import com.example.ecommerce_backend.cache.SharedRateLimitBackend;
+import com.example.ecommerce_backend.repository.RateLimitBucketRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Chooses the rate limit backend:
+ * {@code application.rate-limit.backend=local} (default) limits per node,
+ * {@code shared} limits across the cluster through a shared bucket store,
+ * {@code application.rate-limit.shared.store=postgres} (default) or the
+ * in-process {@code memory} stand-in.
+ */
 @Configuration
 public class RateLimitConfig {
-    
+
     @Value("${application.rate-limit.capacity:100}")
     private long capacity;
-    
+
     @Value("${application.rate-limit.refill-rate:10}")
     private long refillRate;
-    
+
     @Value("${application.rate-limit.window-duration:60}")
     private long windowDuration;
-    
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
-    
-    public Bucket resolveBucket(String key) {
-        return cache.computeIfAbsent(key, k -> createNewBucket());
+
+    @Value("${application.rate-limit.max-buckets:100000}")
+    private long maxBuckets;
+
+    @Bean
+    public Limit rateLimit() {
+        return new Limit(capacity, refillRate, Duration.ofSeconds(windowDuration));
     }
-    
-    private Bucket createNewBucket() {
-        // New Bucket4j 8.x API
-        Bandwidth limit = Bandwidth.builder()
-                .capacity(capacity)
-                .refillIntervally(refillRate, Duration.ofSeconds(windowDuration))
-                .build();
-        
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
+
+    @Bean
+    @ConditionalOnProperty(name = "application.rate-limit.backend", havingValue = "local", matchIfMissing = true)
+    public RateLimitBackend localRateLimitBackend(Limit rateLimit, MeterRegistry meterRegistry) {
+        return new LocalRateLimitBackend(rateLimit, maxBuckets, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.rate-limit.backend", havingValue = "shared")
+    public RateLimitBackend sharedRateLimitBackend(
+            SharedBucketStore sharedBucketStore,
+            Limit rateLimit,
+            MeterRegistry meterRegistry,
+            @Value("${application.rate-limit.shared.max-prefetch:16}") long maxPrefetch
+    ) {
+        return new SharedRateLimitBackend(sharedBucketStore, rateLimit, maxPrefetch, maxBuckets, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.rate-limit.backend", havingValue = "shared")
+    public SharedBucketStore sharedBucketStore(
+            @Value("${application.rate-limit.shared.store:postgres}") String store,
+            Limit rateLimit,
+            RateLimitBucketRepository rateLimitBucketRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        return switch (store) {
+            case "postgres" -> new JdbcSharedBucketStore(rateLimitBucketRepository, transactionManager, rateLimit);
+            case "memory" -> new InMemorySharedBucketStore(rateLimit, maxBuckets);
+            default -> throw new IllegalStateException("Unknown rate limit store: " + store);
+        };
     }
-}
\ No newline at end of file
+}
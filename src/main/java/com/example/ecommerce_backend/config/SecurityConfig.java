@@ -1,6 +1,8 @@
 package com.example.ecommerce_backend.config;
 
+import com.example.ecommerce_backend.security.BoundedPasswordEncoder;
 import com.example.ecommerce_backend.security.JwtAuthenticationFilter;
+import com.example.ecommerce_backend.security.PasswordHashingExecutor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -15,6 +17,7 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -35,10 +38,16 @@ public class SecurityConfig {
     
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final UserDetailsService userDetailsService;
+    private final UserDetailsPasswordService userDetailsPasswordService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
     
     @Value("${application.security.cors.allowed-origins}")
     private String allowedOrigins;
     
+    // Raising it rehashes each user's password at their next login
+    @Value("${application.security.password-hashing.bcrypt-strength:10}")
+    private int bcryptStrength;
+    
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -51,6 +60,7 @@ public class SecurityConfig {
                                 "/api/v1/auth/login",
                                 "/api/v1/auth/refresh",
                                 "/api/v1/auth/oauth/**",  // Allow all OAuth endpoints
+                                "/api/v1/guest-cart/**",  // Anonymous carts (cookie-keyed)
                                 "/api/v1/public/**",
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
@@ -138,6 +148,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Stores a rehash when the stored cost is below bcryptStrength
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
     
@@ -148,6 +160,6 @@ public class SecurityConfig {
     
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), passwordHashingExecutor);
     }
 }
\ No newline at end of file
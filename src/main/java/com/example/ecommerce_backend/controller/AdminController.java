@@ -1,5 +1,7 @@
 package com.example.ecommerce_backend.controller;
 
+import com.example.ecommerce_backend.cache.UserDetailsCache;
+import com.example.ecommerce_backend.cache.UserVersionStore;
 import com.example.ecommerce_backend.dto.response.ApiResponse;
 import com.example.ecommerce_backend.dto.response.PageResponse;
 import com.example.ecommerce_backend.dto.response.UserResponse;
@@ -27,6 +29,8 @@ import org.springframework.web.bind.annotation.*;
 public class AdminController {
     
     private final UserRepository userRepository;
+    private final UserVersionStore userVersionStore;
+    private final UserDetailsCache userDetailsCache;
     
     /**
      * Enable a user account
@@ -38,6 +42,8 @@ public class AdminController {
         
         user.setEnabled(true);
         userRepository.save(user);
+        userVersionStore.invalidate(id);
+        userDetailsCache.evict(user);
         
         return ResponseEntity.ok(ApiResponse.success(
                 mapToUserResponse(user), 
@@ -54,7 +60,10 @@ public class AdminController {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         
         user.setEnabled(false);
+        user.incrementSecurityVersion(); // tokens stay revoked if the user is enabled again
         userRepository.save(user);
+        userVersionStore.invalidate(id);
+        userDetailsCache.evict(user);
         
         return ResponseEntity.ok(ApiResponse.success(
                 mapToUserResponse(user), 
@@ -74,7 +83,10 @@ public class AdminController {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         
         user.setRole(role);
+        user.incrementSecurityVersion(); // tokens carry the role, so reissue them
         userRepository.save(user);
+        userVersionStore.invalidate(id);
+        userDetailsCache.evict(user);
         
         return ResponseEntity.ok(ApiResponse.success(
                 mapToUserResponse(user), 
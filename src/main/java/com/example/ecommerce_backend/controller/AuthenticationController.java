@@ -5,7 +5,7 @@ import com.example.ecommerce_backend.dto.request.OAuthLoginRequest;
 import com.example.ecommerce_backend.dto.request.RegisterRequest;
 import com.example.ecommerce_backend.dto.response.ApiResponse;
 import com.example.ecommerce_backend.dto.response.AuthenticationResponse;
-import com.example.ecommerce_backend.entity.User;
+import com.example.ecommerce_backend.security.AuthenticatedUser;
 import com.example.ecommerce_backend.service.AuthenticationService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -116,10 +116,10 @@ public class AuthenticationController {
      */
     @PostMapping("/logout-all")
     public ResponseEntity<ApiResponse<Void>> logoutAllDevices(
-            @AuthenticationPrincipal User user,
+            @AuthenticationPrincipal AuthenticatedUser principal,
             HttpServletResponse httpResponse
     ) {
-        authenticationService.logoutAllDevices(user, httpResponse);
+        authenticationService.logoutAllDevices(principal.getId(), httpResponse);
         
         return ResponseEntity.ok(ApiResponse.success(
                 null, 
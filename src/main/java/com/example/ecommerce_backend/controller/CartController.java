@@ -1,8 +1,11 @@
 package com.example.ecommerce_backend.controller;
 
 import com.example.ecommerce_backend.dto.request.AddToCartRequest;
+import com.example.ecommerce_backend.dto.request.CartBatchRequest;
+import com.example.ecommerce_backend.cache.CartStore;
 import com.example.ecommerce_backend.dto.request.UpdateCartItemRequest;
 import com.example.ecommerce_backend.dto.response.ApiResponse;
+import com.example.ecommerce_backend.dto.response.CartDeltaResponse;
 import com.example.ecommerce_backend.dto.response.CartResponse;
 import com.example.ecommerce_backend.service.CartService;
 import com.example.ecommerce_backend.service.UserService;
@@ -10,6 +13,8 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/cart")
 @RequiredArgsConstructor
@@ -17,6 +22,10 @@ public class CartController {
 
     private final CartService cartService;
     private final UserService userService;
+    private final CartStore cartStore;
+
+    private static final String VIEW_FULL = "full";
+    private static final String VIEW_DELTA = "delta";
 
     // GET CART
     @GetMapping
@@ -25,27 +34,60 @@ public class CartController {
         return ApiResponse.success(cartService.getCart(userId));
     }
 
-    // ADD TO CART
+    // RECHECK ALL LINES AGAINST CURRENT STOCK AND PRICE (e.g. before checkout)
+    @PostMapping("/revalidate")
+    public ApiResponse<CartResponse> revalidateCart() {
+        Long userId = getUserId();
+        return ApiResponse.success(cartService.revalidateCart(userId));
+    }
+
+    // ADD TO CART (?view=delta returns only the changed line and totals)
     @PostMapping
-    public ApiResponse<CartResponse> addToCart(@Valid @RequestBody AddToCartRequest request) {
+    public ApiResponse<?> addToCart(
+            @Valid @RequestBody AddToCartRequest request,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         Long userId = getUserId();
-        return ApiResponse.success(cartService.addToCart(userId, request));
+        CartResponse cart = cartService.addToCart(userId, request);
+        if (isDelta(view)) {
+            return ApiResponse.success(CartDeltaResponse.of(
+                    cart, item -> request.getProductSizeId().equals(item.getSizeId()), List.of()));
+        }
+        return ApiResponse.success(cart);
     }
 
     // UPDATE CART ITEM
     @PutMapping("/items/{cartItemId}")
-    public ApiResponse<CartResponse> updateCartItem(
+    public ApiResponse<?> updateCartItem(
             @PathVariable Long cartItemId,
-            @Valid @RequestBody UpdateCartItemRequest request) {
+            @Valid @RequestBody UpdateCartItemRequest request,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         Long userId = getUserId();
-        return ApiResponse.success(cartService.updateCartItem(userId, cartItemId, request));
+        CartResponse cart = cartService.updateCartItem(userId, cartItemId, request);
+        if (isDelta(view)) {
+            return ApiResponse.success(CartDeltaResponse.of(
+                    cart, item -> cartItemId.equals(item.getId()), List.of()));
+        }
+        return ApiResponse.success(cart);
     }
 
     // REMOVE CART ITEM
     @DeleteMapping("/items/{cartItemId}")
-    public ApiResponse<CartResponse> removeCartItem(@PathVariable Long cartItemId) {
+    public ApiResponse<?> removeCartItem(
+            @PathVariable Long cartItemId,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         Long userId = getUserId();
-        return ApiResponse.success(cartService.removeCartItem(userId, cartItemId));
+        CartResponse cart = cartService.removeCartItem(userId, cartItemId);
+        if (isDelta(view)) {
+            return ApiResponse.success(CartDeltaResponse.of(cart, item -> false, List.of(cartItemId)));
+        }
+        return ApiResponse.success(cart);
+    }
+
+    // APPLY SEVERAL ADD/UPDATE/REMOVE OPERATIONS IN ONE REQUEST
+    @PostMapping("/batch")
+    public ApiResponse<CartResponse> applyBatch(@Valid @RequestBody CartBatchRequest request) {
+        Long userId = getUserId();
+        return ApiResponse.success(cartService.applyBatch(userId, request));
     }
 
     // CLEAR CART
@@ -56,11 +98,19 @@ public class CartController {
         return ApiResponse.success("Cart cleared successfully");
     }
 
+    /**
+     * Write-behind changes keep the persisted version until they are flushed,
+     * so a delta could not show a missed change: the full cart is returned instead.
+     */
+    private boolean isDelta(String view) {
+        return VIEW_DELTA.equalsIgnoreCase(view) && !cartStore.isWriteBehind();
+    }
+
     /**
      * Get userId from authenticated user
-     * Uses existing UserService.getCurrentUser() method
+     * Read from the token principal, no user lookup
      */
     private Long getUserId() {
-        return userService.getCurrentUser().getId();
+        return userService.getCurrentUserId();
     }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.example.ecommerce_backend.controller;
+
+import com.example.ecommerce_backend.dto.request.AddToCartRequest;
+import com.example.ecommerce_backend.dto.request.UpdateCartItemRequest;
+import com.example.ecommerce_backend.dto.response.ApiResponse;
+import com.example.ecommerce_backend.dto.response.CartResponse;
+import com.example.ecommerce_backend.service.GuestCartService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Anonymous cart, identified by the guest cart cookie.
+ * Merged into the user's cart on login.
+ */
+@RestController
+@RequestMapping("/api/v1/guest-cart")
+@RequiredArgsConstructor
+public class GuestCartController {
+
+    private final GuestCartService guestCartService;
+
+    // GET GUEST CART
+    @GetMapping
+    public ApiResponse<CartResponse> getCart(HttpServletRequest httpRequest) {
+        return ApiResponse.success(guestCartService.getCart(httpRequest));
+    }
+
+    // ADD TO GUEST CART
+    @PostMapping
+    public ApiResponse<CartResponse> addToCart(
+            @Valid @RequestBody AddToCartRequest request,
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) {
+        return ApiResponse.success(guestCartService.addToCart(request, httpRequest, httpResponse));
+    }
+
+    // UPDATE GUEST CART ITEM (lines are addressed by product size id)
+    @PutMapping("/items/{productSizeId}")
+    public ApiResponse<CartResponse> updateCartItem(
+            @PathVariable Long productSizeId,
+            @Valid @RequestBody UpdateCartItemRequest request,
+            HttpServletRequest httpRequest) {
+        return ApiResponse.success(guestCartService.updateItem(productSizeId, request, httpRequest));
+    }
+
+    // REMOVE GUEST CART ITEM
+    @DeleteMapping("/items/{productSizeId}")
+    public ApiResponse<CartResponse> removeCartItem(
+            @PathVariable Long productSizeId,
+            HttpServletRequest httpRequest) {
+        return ApiResponse.success(guestCartService.removeItem(productSizeId, httpRequest));
+    }
+
+    // CLEAR GUEST CART
+    @DeleteMapping
+    public ApiResponse<String> clearCart(HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        guestCartService.clearCart(httpRequest, httpResponse);
+        return ApiResponse.success("Cart cleared successfully");
+    }
+}
@@ -124,6 +124,6 @@ public class OrderController {
      * Get userId from authenticated user
      */
     private Long getUserId() {
-        return userService.getCurrentUser().getId();
+        return userService.getCurrentUserId();
     }
 }
\ No newline at end of file
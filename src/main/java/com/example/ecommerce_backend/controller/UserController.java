@@ -26,7 +26,7 @@ public class UserController {
     }
     
     @GetMapping("/{id}")
-    @PreAuthorize("hasRole('ADMIN') or @userService.getCurrentUser().id == #id")
+    @PreAuthorize("hasRole('ADMIN') or @userService.getCurrentUserId() == #id")
     public ResponseEntity<ApiResponse<UserResponse>> getUserById(@PathVariable Long id) {
         UserResponse user = userService.getUserById(id);
         return ResponseEntity.ok(ApiResponse.success(user, "User retrieved successfully"));
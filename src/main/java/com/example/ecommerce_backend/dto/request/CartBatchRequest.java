@@ -0,0 +1,49 @@
+package com.example.ecommerce_backend.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartBatchRequest {
+
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = 50, message = "Maximum 50 operations per batch")
+    @Valid
+    private List<Operation> operations;
+
+    public enum OperationType {
+        ADD,      // productId, productSizeId, quantity
+        UPDATE,   // cartItemId, quantity
+        REMOVE    // cartItemId
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Operation {
+
+        @NotNull(message = "Operation type is required")
+        private OperationType type;
+
+        private Long productId;
+
+        private Long productSizeId;
+
+        private Long cartItemId;
+
+        @Min(value = 1, message = "Quantity must be at least 1")
+        private Integer quantity;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.ecommerce_backend.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Compact result of a cart mutation: only the changed line(s), the new totals
+ * and the cart version. Clients apply it to their local copy and refetch the
+ * full cart when the version is not the one they expect.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartDeltaResponse {
+
+    private Long id;
+    private Long version;
+    private List<CartResponse.CartItemResponse> changedItems;
+    private List<Long> removedItemIds;
+    private Integer totalItems;
+    private Integer uniqueItems;
+    private Double subtotal;
+    private Double tax;
+    private Double total;
+
+    public static CartDeltaResponse of(
+            CartResponse cart,
+            Predicate<CartResponse.CartItemResponse> changed,
+            List<Long> removedItemIds
+    ) {
+        return CartDeltaResponse.builder()
+                .id(cart.getId())
+                .version(cart.getVersion())
+                .changedItems(cart.getItems().stream().filter(changed).toList())
+                .removedItemIds(removedItemIds)
+                .totalItems(cart.getTotalItems())
+                .uniqueItems(cart.getUniqueItems())
+                .subtotal(cart.getSubtotal())
+                .tax(cart.getTax())
+                .total(cart.getTotal())
+                .build();
+    }
+}
@@ -2,8 +2,10 @@ package com.example.ecommerce_backend.dto.response;
 
 import com.example.ecommerce_backend.entity.Cart;
 import com.example.ecommerce_backend.entity.CartItem;
+import com.example.ecommerce_backend.entity.ProductSize;
 import lombok.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -11,23 +13,28 @@ import java.util.stream.Collectors;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class CartResponse {
 
+    private static final double PRICE_TOLERANCE = 0.005;
+
     private Long id;
     private Long userId;
+    private Long version;
     private List<CartItemResponse> items;
     private Integer totalItems;
     private Integer uniqueItems;
     private Double subtotal;
     private Double tax;
     private Double total;
+    private Boolean hasPriceChanges;
+    private Boolean hasUnavailableItems;
 
     @Getter
     @Setter
     @NoArgsConstructor
     @AllArgsConstructor
-    @Builder
+    @Builder(toBuilder = true)
     public static class CartItemResponse {
         private Long id;
         private Long productId;
@@ -40,11 +47,60 @@ public class CartResponse {
         private Double price;
         private Double total;
         private Integer availableStock;
+        private Double currentPrice;    // price the product sells for now
+        private Boolean priceChanged;   // currentPrice differs from the price snapshotted at add time
+        private Boolean outOfStock;     // quantity exceeds availableStock
+
+        /**
+         * Copy of this line checked against the size's current stock and price.
+         */
+        public CartItemResponse revalidate(int stock, double price) {
+            return toBuilder()
+                    .availableStock(stock)
+                    .currentPrice(price)
+                    .priceChanged(isPriceDrift(this.price, price))
+                    .outOfStock(quantity > stock)
+                    .build();
+        }
+
+        /**
+         * Copy of this line with a new quantity; the stock flag follows the new quantity.
+         */
+        public CartItemResponse withQuantity(int quantity) {
+            return toBuilder()
+                    .quantity(quantity)
+                    .total(price * quantity)
+                    .outOfStock(availableStock != null && quantity > availableStock)
+                    .build();
+        }
+    }
+
+    /**
+     * Cart for a user who has no cart row yet. Nothing is persisted until the first add.
+     */
+    public static CartResponse empty(Long userId) {
+        return CartResponse.builder()
+                .userId(userId)
+                .version(0L)
+                .items(new ArrayList<>())
+                .totalItems(0)
+                .uniqueItems(0)
+                .subtotal(0.0)
+                .tax(0.0)
+                .total(0.0)
+                .hasPriceChanges(false)
+                .hasUnavailableItems(false)
+                .build();
     }
 
     public static CartResponse fromEntity(Cart cart) {
         List<CartItemResponse> itemResponses = cart.getItems().stream()
-                .map(item -> CartItemResponse.builder()
+                .map(item -> {
+                    ProductSize size = item.getProductSize();
+                    double currentPrice = size.getPriceOverride() != null
+                            ? size.getPriceOverride()
+                            : item.getProduct().getPrice();
+                    return CartItemResponse.builder()
                         .id(item.getId())
                         .productId(item.getProduct().getId())
                         .productName(item.getProduct().getName())
@@ -55,19 +111,54 @@ public class CartResponse {
                         .quantity(item.getQuantity())
                         .price(item.getPrice())
                         .total(item.getTotal())
-                        .availableStock(item.getProductSize().getStock())
-                        .build())
+                        .availableStock(size.getStock())
+                        .currentPrice(currentPrice)
+                        .priceChanged(isPriceDrift(item.getPrice(), currentPrice))
+                        .outOfStock(item.getQuantity() > size.getStock())
+                        .build();
+                })
                 .collect(Collectors.toList());
 
         return CartResponse.builder()
                 .id(cart.getId())
                 .userId(cart.getUserId())
+                .version(cart.getVersion())
                 .items(itemResponses)
                 .totalItems(cart.getTotalItems())
                 .uniqueItems(cart.getUniqueItems())
                 .subtotal(cart.getSubtotal())
                 .tax(cart.getTax())
                 .total(cart.getTotal())
+                .hasPriceChanges(itemResponses.stream().anyMatch(i -> Boolean.TRUE.equals(i.getPriceChanged())))
+                .hasUnavailableItems(itemResponses.stream().anyMatch(i -> Boolean.TRUE.equals(i.getOutOfStock())))
+                .build();
+    }
+
+    /**
+     * Copy of this cart with the given lines, recomputing totals and flags.
+     */
+    public CartResponse withItems(List<CartItemResponse> lines, Long version) {
+        int quantity = 0;
+        double sub = 0;
+        for (CartItemResponse line : lines) {
+            quantity += line.getQuantity();
+            sub += line.getTotal();
+        }
+        double taxAmount = sub * Cart.TAX_RATE;
+        return toBuilder()
+                .version(version)
+                .items(lines)
+                .totalItems(quantity)
+                .uniqueItems(lines.size())
+                .subtotal(sub)
+                .tax(taxAmount)
+                .total(sub + taxAmount)
+                .hasPriceChanges(lines.stream().anyMatch(i -> Boolean.TRUE.equals(i.getPriceChanged())))
+                .hasUnavailableItems(lines.stream().anyMatch(i -> Boolean.TRUE.equals(i.getOutOfStock())))
                 .build();
     }
+
+    private static boolean isPriceDrift(Double snapshotPrice, double currentPrice) {
+        return snapshotPrice == null || Math.abs(snapshotPrice - currentPrice) > PRICE_TOLERANCE;
+    }
 }
\ No newline at end of file
@@ -7,10 +7,14 @@ import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+    @Index(name = "idx_carts_updated_at", columnList = "updated_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,6 +22,8 @@ import java.util.List;
 @Builder
 public class Cart {
 
+    public static final double TAX_RATE = 0.10; // 10% tax
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -33,6 +39,30 @@ public class Cart {
     @Builder.Default
     private List<CartItem> items = new ArrayList<>();
 
+    // Running totals, kept in sync by the helper methods below and
+    // persisted so summaries can be read without loading items
+    @Column(name = "total_quantity", nullable = false)
+    @Setter(AccessLevel.NONE)
+    @Builder.Default
+    private Integer totalItems = 0;
+
+    @Column(nullable = false)
+    @Setter(AccessLevel.NONE)
+    @Builder.Default
+    private Double subtotal = 0.0;
+
+    // Bumped on every change (running totals always change with the items)
+    @Version
+    @Column(nullable = false)
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
+    // productSizeId -> item, built on first lookup
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<Long, CartItem> itemsBySizeId;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -43,40 +73,62 @@ public class Cart {
     public void addItem(CartItem item) {
         items.add(item);
         item.setCart(this);
+        index().put(item.getProductSize().getId(), item);
+        applyDelta(item.getQuantity(), item.getTotal());
     }
 
     public void removeItem(CartItem item) {
-        items.remove(item);
+        if (items.remove(item)) {
+            index().remove(item.getProductSize().getId());
+            applyDelta(-item.getQuantity(), -item.getTotal());
+        }
         item.setCart(null);
     }
 
     public void clearItems() {
         items.forEach(item -> item.setCart(null));
         items.clear();
+        if (itemsBySizeId != null) {
+            itemsBySizeId.clear();
+        }
+        totalItems = 0;
+        subtotal = 0.0;
     }
 
-    // Calculate totals
-    public int getTotalItems() {
-        return items.stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+    public void changeQuantity(CartItem item, int quantity) {
+        int delta = quantity - item.getQuantity();
+        item.setQuantity(quantity);
+        applyDelta(delta, delta * item.getPrice());
     }
 
-    public int getUniqueItems() {
-        return items.size();
+    public CartItem findItemBySizeId(Long productSizeId) {
+        return index().get(productSizeId);
+    }
+
+    private Map<Long, CartItem> index() {
+        if (itemsBySizeId == null) {
+            itemsBySizeId = new HashMap<>();
+            items.forEach(item -> itemsBySizeId.put(item.getProductSize().getId(), item));
+        }
+        return itemsBySizeId;
+    }
+
+    private void applyDelta(int quantityDelta, double subtotalDelta) {
+        totalItems += quantityDelta;
+        // Reset on empty so floating point residue never accumulates
+        subtotal = items.isEmpty() ? 0.0 : subtotal + subtotalDelta;
     }
 
-    public double getSubtotal() {
-        return items.stream()
-                .mapToDouble(item -> item.getPrice() * item.getQuantity())
-                .sum();
+    // Calculate totals
+    public int getUniqueItems() {
+        return items.size();
     }
 
     public double getTax() {
-        return getSubtotal() * 0.10; // 10% tax
+        return subtotal * TAX_RATE;
     }
 
     public double getTotal() {
-        return getSubtotal() + getTax();
+        return subtotal + getTax();
     }
 }
\ No newline at end of file
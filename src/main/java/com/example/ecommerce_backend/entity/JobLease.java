@@ -0,0 +1,32 @@
+package com.example.ecommerce_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Time-bound lock on a background job, so that only one node runs it at a time.
+ * Acquired and renewed through {@link com.example.ecommerce_backend.repository.JobLeaseRepository}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "job_leases")
+public class JobLease {
+    
+    @Id
+    @Column(length = 100)
+    private String name;
+    
+    @Column(nullable = false, length = 100)
+    private String owner;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,38 @@
+package com.example.ecommerce_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cluster-wide rate limit bucket, one row per client key. Only read and
+ * written through the atomic upsert in
+ * {@link com.example.ecommerce_backend.repository.RateLimitBucketRepository}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "rate_limit_buckets", indexes = {
+    @Index(name = "idx_rate_limit_buckets_refilled_ms", columnList = "refilled_ms")
+})
+public class RateLimitBucket {
+    
+    @Id
+    @Column(name = "bucket_key")
+    private Long bucketKey;
+    
+    @Column(nullable = false)
+    private long tokens;
+    
+    // Epoch millis (database clock) of the last refill boundary
+    @Column(name = "refilled_ms", nullable = false)
+    private long refilledMs;
+    
+    // Tokens handed out by the latest take, read back through RETURNING
+    @Column(name = "last_granted", nullable = false)
+    private long lastGranted;
+}
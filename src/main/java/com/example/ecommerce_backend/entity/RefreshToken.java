@@ -15,7 +15,9 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "refresh_tokens", indexes = {
     @Index(name = "idx_token_hash", columnList = "token_hash"),
-    @Index(name = "idx_user_id", columnList = "user_id")
+    @Index(name = "idx_refresh_tokens_user_active", columnList = "user_id, revoked, expires_at"),
+    @Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at"),
+    @Index(name = "idx_refresh_tokens_revoked_at", columnList = "revoked_at")
 })
 public class RefreshToken {
     
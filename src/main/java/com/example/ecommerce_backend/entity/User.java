@@ -83,6 +83,11 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private Boolean credentialsNonExpired = true;
     
+    // Embedded in access tokens; bumping it revokes every token issued before
+    @Builder.Default
+    @Column(name = "security_version", nullable = false)
+    private Long securityVersion = 0L;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -138,6 +143,13 @@ public class User implements UserDetails {
         return enabled;
     }
     
+    /**
+     * Invalidates all access tokens issued to this user so far
+     */
+    public void incrementSecurityVersion() {
+        securityVersion++;
+    }
+    
     /**
      * Checks if this user authenticated via OAuth (Google, Facebook, etc.)
      * @return true if user is an OAuth user, false if local password user
@@ -0,0 +1,7 @@
+package com.example.ecommerce_backend.exception;
+
+public class CartConflictException extends RuntimeException {
+    public CartConflictException(String message) {
+        super(message);
+    }
+}
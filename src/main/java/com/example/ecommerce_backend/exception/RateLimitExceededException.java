@@ -1,7 +1,22 @@
 package com.example.ecommerce_backend.exception;
 
 public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
     public RateLimitExceededException(String message) {
+        this(message, 0);
+    }
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
         super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return seconds until a retry may succeed, or 0 if unknown
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,8 @@
 package com.example.ecommerce_backend.interceptor;
 
-import com.example.ecommerce_backend.config.RateLimitConfig;
+import com.example.ecommerce_backend.cache.RateLimitBackend;
 import com.example.ecommerce_backend.exception.RateLimitExceededException;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.ConsumptionProbe;
+import com.example.ecommerce_backend.util.ClientIpResolver;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -16,7 +15,8 @@ import org.springframework.web.servlet.HandlerInterceptor;
 @RequiredArgsConstructor
 public class RateLimitInterceptor implements HandlerInterceptor {
     
-    private final RateLimitConfig rateLimitConfig;
+    private final RateLimitBackend rateLimitBackend;
+    private final ClientIpResolver clientIpResolver;
     
     @Value("${application.rate-limit.enabled:true}")
     private boolean rateLimitEnabled;
@@ -32,35 +32,26 @@ public class RateLimitInterceptor implements HandlerInterceptor {
             return true;
         }
         
-        // Get IP address
-        String ip = getClientIP(request);
+        // Get IP address (X-Forwarded-For only via trusted proxies)
+        String ip = clientIpResolver.resolve(request);
         
-        // Resolve bucket for this IP
-        Bucket bucket = rateLimitConfig.resolveBucket(ip);
+        // Try to consume a token from this IP's bucket
+        RateLimitBackend.Probe probe = rateLimitBackend.tryConsume(RateLimitBackend.keyFor(ip));
         
-        // Try to consume a token
-        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
-        
-        if (probe.isConsumed()) {
+        if (probe.consumed()) {
             // Add rate limit headers
-            response.addHeader("X-Rate-Limit-Remaining", String.valueOf(probe.getRemainingTokens()));
+            response.addHeader("X-Rate-Limit-Remaining", String.valueOf(probe.remainingTokens()));
             return true;
         } else {
             // Rate limit exceeded
-            long waitForRefill = probe.getNanosToWaitForRefill() / 1_000_000_000;
+            // Round up: a sub-second wait must not be advertised as 0
+            long waitForRefill = Math.max(1, (long) Math.ceil(probe.nanosToWaitForRefill() / 1e9));
             response.addHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(waitForRefill));
             
             throw new RateLimitExceededException(
-                    "Rate limit exceeded. Try again in " + waitForRefill + " seconds."
+                    "Rate limit exceeded. Try again in " + waitForRefill + " seconds.",
+                    waitForRefill
             );
         }
     }
-    
-    private String getClientIP(HttpServletRequest request) {
-        String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null) {
-            return request.getRemoteAddr();
-        }
-        return xfHeader.split(",")[0];
-    }
 }
\ No newline at end of file
@@ -4,8 +4,13 @@ import com.example.ecommerce_backend.entity.Cart;
 import com.example.ecommerce_backend.entity.CartItem;
 import com.example.ecommerce_backend.entity.ProductSize;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +19,12 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     Optional<CartItem> findByCartAndProductSize(Cart cart, ProductSize productSize);
     
     void deleteByCart(Cart cart);
-}
\ No newline at end of file
+    
+    @Modifying
+    @Query("UPDATE CartItem ci SET ci.quantity = :quantity, ci.updatedAt = :now WHERE ci.id = :id")
+    int updateQuantity(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query(value = "DELETE FROM cart_items WHERE cart_id IN (:cartIds)", nativeQuery = true)
+    int deleteByCartIds(@Param("cartIds") List<Long> cartIds);
+}
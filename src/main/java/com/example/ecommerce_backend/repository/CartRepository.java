@@ -2,8 +2,13 @@ package com.example.ecommerce_backend.repository;
 
 import com.example.ecommerce_backend.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,7 +16,67 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     
     Optional<Cart> findByUserId(Long userId);
     
+    /**
+     * Loads the cart with its items, products and sizes in one query
+     * so building a CartResponse triggers no lazy loads.
+     */
+    @Query("SELECT c FROM Cart c " +
+           "LEFT JOIN FETCH c.items i " +
+           "LEFT JOIN FETCH i.product " +
+           "LEFT JOIN FETCH i.productSize " +
+           "WHERE c.userId = :userId")
+    Optional<Cart> findByUserIdWithItems(@Param("userId") Long userId);
+    
     boolean existsByUserId(Long userId);
     
     void deleteByUserId(Long userId);
-}
\ No newline at end of file
+    
+    /**
+     * Creates the user's cart row if it does not exist yet.
+     * Safe under concurrent first adds thanks to the unique user_id.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO carts (user_id, total_quantity, subtotal, version, created_at, updated_at) " +
+           "VALUES (:userId, 0, 0, 0, :now, :now) " +
+           "ON CONFLICT (user_id) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+    
+    /**
+     * Recomputes the persisted running totals after item rows were
+     * updated directly (write-behind flush) and advances the version.
+     *
+     * @return the new version, or null if the cart no longer exists
+     */
+    @Query(value = "UPDATE carts SET " +
+           "total_quantity = (SELECT COALESCE(SUM(ci.quantity), 0) FROM cart_items ci WHERE ci.cart_id = :id), " +
+           "subtotal = (SELECT COALESCE(SUM(ci.price * ci.quantity), 0) FROM cart_items ci WHERE ci.cart_id = :id), " +
+           "version = version + 1, " +
+           "updated_at = :now " +
+           "WHERE id = :id " +
+           "RETURNING version",
+           nativeQuery = true)
+    Long refreshTotals(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    interface CartOwner {
+        Long getId();
+        Long getUserId();
+    }
+    
+    /**
+     * Claims up to :limit carts not modified since the cutoff, oldest first
+     * (idx_carts_updated_at). Rows locked by another purge or a concurrent
+     * cart update are skipped rather than waited on.
+     */
+    @Query(value = "SELECT id AS id, user_id AS userId FROM carts " +
+           "WHERE updated_at < :cutoff " +
+           "ORDER BY updated_at " +
+           "LIMIT :limit " +
+           "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<CartOwner> lockAbandonedCarts(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+    
+    @Modifying
+    @Query(value = "DELETE FROM carts WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIds(@Param("ids") List<Long> ids);
+}
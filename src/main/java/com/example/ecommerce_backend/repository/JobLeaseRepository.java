@@ -0,0 +1,37 @@
+package com.example.ecommerce_backend.repository;
+
+import com.example.ecommerce_backend.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+    
+    /**
+     * Takes the lease if it is free, expired or already ours (which renews it).
+     * Expiry is computed and checked on the database clock (in UTC), so
+     * clock skew between nodes cannot hand the lease to two of them.
+     *
+     * @return 1 if this owner now holds the lease, 0 otherwise
+     */
+    @Modifying
+    @Query(value = "INSERT INTO job_leases (name, owner, expires_at) " +
+           "VALUES (:name, :owner, (now() AT TIME ZONE 'UTC') + make_interval(secs => :ttlSeconds)) " +
+           "ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at " +
+           "WHERE job_leases.expires_at < (now() AT TIME ZONE 'UTC') OR job_leases.owner = EXCLUDED.owner",
+           nativeQuery = true)
+    int tryAcquire(
+            @Param("name") String name,
+            @Param("owner") String owner,
+            @Param("ttlSeconds") double ttlSeconds
+    );
+    
+    @Modifying
+    @Query(value = "UPDATE job_leases SET expires_at = (now() AT TIME ZONE 'UTC') " +
+           "WHERE name = :name AND owner = :owner",
+           nativeQuery = true)
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
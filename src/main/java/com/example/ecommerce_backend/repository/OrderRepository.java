@@ -2,9 +2,11 @@ package com.example.ecommerce_backend.repository;
 
 import com.example.ecommerce_backend.entity.Order;
 import com.example.ecommerce_backend.entity.OrderStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -40,6 +42,43 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             @Param("endDate") LocalDateTime endDate
     );
     
+    /**
+     * Claims a chunk of stale unpaid orders for cancellation.
+     * SKIP LOCKED lets several nodes run the job concurrently without
+     * blocking on, or double-processing, each other's rows.
+     */
+    @Query(value = "SELECT o.id FROM orders o " +
+           "WHERE o.status = 'PENDING' AND o.payment_status = 'PENDING' " +
+           "AND o.payment_method <> 'CASH_ON_DELIVERY' " +
+           "AND o.created_at < :cutoff " +
+           "ORDER BY o.created_at " +
+           "LIMIT :limit " +
+           "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> lockStaleUnpaidOrderIds(
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("limit") int limit
+    );
+    
+    /**
+     * Cancels the given orders that are still PENDING.
+     *
+     * @return ids of the orders this statement actually cancelled
+     */
+    @Query(value = "UPDATE orders SET status = 'CANCELLED', updated_at = :now " +
+           "WHERE id IN (:ids) AND status = 'PENDING' " +
+           "RETURNING id",
+           nativeQuery = true)
+    List<Long> cancelPendingOrders(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+    
+    /**
+     * Loads an order with a row lock, so concurrent cancellations
+     * serialize and only one of them restores the stock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+    
     boolean existsByOrderNumber(String orderNumber);
     
     Long countByUserId(Long userId);
@@ -3,8 +3,11 @@ package com.example.ecommerce_backend.repository;
 import com.example.ecommerce_backend.entity.Product;
 import com.example.ecommerce_backend.entity.ProductSize;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +19,37 @@ public interface ProductSizeRepository extends JpaRepository<ProductSize, Long>
     Optional<ProductSize> findByProductAndSize(Product product, String size);
     
     void deleteByProduct(Product product);
+    
+    @Query("SELECT ps FROM ProductSize ps JOIN FETCH ps.product WHERE ps.id = :id")
+    Optional<ProductSize> findByIdWithProduct(@Param("id") Long id);
+    
+    @Query("SELECT ps FROM ProductSize ps JOIN FETCH ps.product WHERE ps.id IN :ids")
+    List<ProductSize> findAllByIdWithProduct(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Current stock and effective price of a size, for cart revalidation.
+     */
+    interface Availability {
+        Long getId();
+        Integer getStock();
+        Double getCurrentPrice();
+    }
+    
+    @Query("SELECT ps.id AS id, ps.stock AS stock, COALESCE(ps.priceOverride, p.price) AS currentPrice " +
+           "FROM ProductSize ps JOIN ps.product p WHERE ps.id IN :ids")
+    List<Availability> findAvailabilityByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Returns the stock held by the given orders back to their sizes
+     * in a single set-based statement.
+     *
+     * @return ids of the sizes whose stock changed
+     */
+    @Query(value = "UPDATE product_sizes ps SET stock = ps.stock + oi.qty " +
+           "FROM (SELECT product_size_id, SUM(quantity) AS qty FROM order_items " +
+           "      WHERE order_id IN (:orderIds) GROUP BY product_size_id) oi " +
+           "WHERE ps.id = oi.product_size_id " +
+           "RETURNING ps.id",
+           nativeQuery = true)
+    List<Long> restoreStockForOrders(@Param("orderIds") List<Long> orderIds);
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.ecommerce_backend.repository;
+
+import com.example.ecommerce_backend.entity.RateLimitBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RateLimitBucketRepository extends JpaRepository<RateLimitBucket, Long> {
+    
+    interface Take {
+        Long getGranted();
+        Long getRemaining();
+        Long getWaitMs();
+    }
+    
+    /**
+     * Refills the bucket by whole periods elapsed on the database clock and
+     * takes up to :requested tokens, in one statement. A missing bucket starts
+     * full. Must run in a read-write transaction.
+     */
+    @Query(value = "INSERT INTO rate_limit_buckets AS b (bucket_key, tokens, refilled_ms, last_granted) " +
+           "VALUES (:key, :capacity - LEAST(:requested, :capacity), " +
+           "CAST(EXTRACT(EPOCH FROM now()) * 1000 AS BIGINT), LEAST(:requested, :capacity)) " +
+           "ON CONFLICT (bucket_key) DO UPDATE SET " +
+           "tokens = LEAST(:capacity, b.tokens + (EXCLUDED.refilled_ms - b.refilled_ms) / :periodMs * :refill) " +
+           "- LEAST(:requested, LEAST(:capacity, b.tokens + (EXCLUDED.refilled_ms - b.refilled_ms) / :periodMs * :refill)), " +
+           "refilled_ms = b.refilled_ms + (EXCLUDED.refilled_ms - b.refilled_ms) / :periodMs * :periodMs, " +
+           "last_granted = LEAST(:requested, LEAST(:capacity, b.tokens + (EXCLUDED.refilled_ms - b.refilled_ms) / :periodMs * :refill)) " +
+           "RETURNING b.last_granted AS granted, b.tokens AS remaining, " +
+           "GREATEST(0, b.refilled_ms + :periodMs - CAST(EXTRACT(EPOCH FROM now()) * 1000 AS BIGINT)) AS waitMs",
+           nativeQuery = true)
+    Take take(
+            @Param("key") long key,
+            @Param("requested") long requested,
+            @Param("capacity") long capacity,
+            @Param("refill") long refill,
+            @Param("periodMs") long periodMs
+    );
+    
+    /**
+     * Deletes buckets idle long enough to be full again (equal to a new one).
+     */
+    @Modifying
+    @Query(value = "DELETE FROM rate_limit_buckets WHERE bucket_key IN (" +
+           "SELECT bucket_key FROM rate_limit_buckets " +
+           "WHERE refilled_ms < CAST(EXTRACT(EPOCH FROM now()) * 1000 AS BIGINT) - :idleMs " +
+           "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int deleteIdle(@Param("idleMs") long idleMs, @Param("limit") int limit);
+}
@@ -2,21 +2,61 @@ package com.example.ecommerce_backend.repository;
 
 import com.example.ecommerce_backend.entity.RefreshToken;
 import com.example.ecommerce_backend.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
     
     Optional<RefreshToken> findByTokenHash(String tokenHash);
     
+    @Query("SELECT COUNT(rt) FROM RefreshToken rt WHERE rt.revoked = false AND rt.expiresAt > :now")
+    long countActiveTokens(@Param("now") LocalDateTime now);
+    
+    /**
+     * Streams the hashes of all active tokens; must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT rt.tokenHash FROM RefreshToken rt WHERE rt.revoked = false AND rt.expiresAt > :now")
+    Stream<String> streamActiveTokenHashes(@Param("now") LocalDateTime now);
+    
+    @Query("SELECT rt FROM RefreshToken rt JOIN FETCH rt.user WHERE rt.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHashWithUser(@Param("tokenHash") String tokenHash);
+    
+    /**
+     * Revokes a token being rotated, only if it is still active.
+     *
+     * @return 0 if another request rotated or revoked it first
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.revokedAt = :now, rt.replacedByTokenHash = :replacedBy " +
+           "WHERE rt.id = :id AND rt.revoked = false")
+    int revokeIfActive(@Param("id") Long id, @Param("replacedBy") String replacedBy, @Param("now") LocalDateTime now);
+    
+    /**
+     * Revokes every active token of the user except the newest :keep,
+     * in one statement (idx_refresh_tokens_user_active).
+     */
+    @Modifying
+    @Query(value = "UPDATE refresh_tokens SET revoked = true, revoked_at = :now " +
+           "WHERE id IN (SELECT id FROM refresh_tokens " +
+           "             WHERE user_id = :userId AND revoked = false AND expires_at > :now " +
+           "             ORDER BY created_at DESC, id DESC " +
+           "             OFFSET :keep)",
+           nativeQuery = true)
+    int revokeAllButNewest(@Param("userId") Long userId, @Param("keep") int keep, @Param("now") LocalDateTime now);
+    
     @Query("SELECT rt FROM RefreshToken rt WHERE rt.user = :user AND rt.revoked = false AND rt.expiresAt > :now")
     List<RefreshToken> findValidTokensByUser(@Param("user") User user, @Param("now") LocalDateTime now);
     
@@ -26,13 +66,23 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
     @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.revokedAt = :now WHERE rt.user = :user AND rt.revoked = false")
     void revokeAllUserTokens(@Param("user") User user, @Param("now") LocalDateTime now);
     
+    /**
+     * Deletes up to :limit expired tokens (idx_refresh_tokens_expires_at).
+     */
     @Modifying
-    @Query("DELETE FROM RefreshToken rt WHERE rt.expiresAt < :now")
-    void deleteExpiredTokens(@Param("now") LocalDateTime now);
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN (" +
+           "SELECT id FROM refresh_tokens WHERE expires_at < :now LIMIT :limit)",
+           nativeQuery = true)
+    int deleteExpiredTokens(@Param("now") LocalDateTime now, @Param("limit") int limit);
     
+    /**
+     * Deletes up to :limit tokens revoked before the cutoff (idx_refresh_tokens_revoked_at).
+     */
     @Modifying
-    @Query("DELETE FROM RefreshToken rt WHERE rt.revoked = true AND rt.revokedAt < :before")
-    void deleteRevokedTokensBefore(@Param("before") LocalDateTime before);
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN (" +
+           "SELECT id FROM refresh_tokens WHERE revoked = true AND revoked_at < :before LIMIT :limit)",
+           nativeQuery = true)
+    int deleteRevokedTokensBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
     
     @Query("SELECT COUNT(rt) FROM RefreshToken rt WHERE rt.user = :user AND rt.revoked = false AND rt.expiresAt > :now")
     long countActiveTokensByUser(@Param("user") User user, @Param("now") LocalDateTime now);
@@ -5,10 +5,13 @@ import com.example.ecommerce_backend.entity.OAuthProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
@@ -30,6 +33,38 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     Boolean existsByEmail(String email);
     
+    @Query("SELECT u.securityVersion FROM User u WHERE u.id = :id AND u.enabled = true")
+    Optional<Long> findActiveSecurityVersion(@Param("id") Long id);
+    
+    // Batched write-behind of login timestamps; never moves lastLogin backwards
+    @Modifying
+    @Query(value = "UPDATE users SET last_login = GREATEST(last_login, :lastLogin) WHERE id IN (:ids)",
+           nativeQuery = true)
+    int updateLastLogin(@Param("ids") Collection<Long> ids, @Param("lastLogin") LocalDateTime lastLogin);
+    
+    /**
+     * Suffix for the next free username built from base: 0 if base itself is
+     * free, otherwise one past the highest numeric suffix in use.
+     * The prefix LIKE can use an index on username text_pattern_ops.
+     */
+    @Query(value = "SELECT CASE WHEN bool_or(username = :base) " +
+           "THEN COALESCE(MAX(CAST(SUBSTRING(username FROM :suffixStart) AS INTEGER)) " +
+           "FILTER (WHERE username <> :base), 0) + 1 " +
+           "ELSE 0 END " +
+           "FROM users " +
+           "WHERE username LIKE :prefix " +
+           "AND (username = :base OR SUBSTRING(username FROM :suffixStart) ~ '^[0-9]{1,9}$')",
+           nativeQuery = true)
+    Integer findNextUsernameSuffix(
+            @Param("base") String base,
+            @Param("prefix") String prefix,
+            @Param("suffixStart") int suffixStart
+    );
+    
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.updatedAt = :now WHERE u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password, @Param("now") LocalDateTime now);
+    
     // Full-text search using LIKE (can be replaced with PostgreSQL full-text search)
     @Query("SELECT u FROM User u WHERE " +
            "LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
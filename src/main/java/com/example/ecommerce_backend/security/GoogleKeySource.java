@@ -0,0 +1,26 @@
+package com.example.ecommerce_backend.security;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Source of the public keys that sign Google ID tokens.
+ *
+ * The validator calls {@link #fetch()} from a single thread at a time and
+ * caches the result until shortly before {@link KeySet#expiresAt()}.
+ */
+public interface GoogleKeySource {
+
+    /**
+     * @throws Exception if the keys cannot be loaded; the previous set stays in use
+     */
+    KeySet fetch() throws Exception;
+
+    record KeySet(List<PublicKey> keys, Instant expiresAt) {
+
+        public boolean isExpired(Instant now) {
+            return !expiresAt.isAfter(now);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.ecommerce_backend.security;
+
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Loads Google's published signing certificates over HTTPS. The expiry
+ * comes from the Cache-Control max-age of the response.
+ */
+public class HttpGoogleKeySource implements GoogleKeySource {
+
+    private final GooglePublicKeysManager keysManager =
+            new GooglePublicKeysManager(new NetHttpTransport(), GsonFactory.getDefaultInstance());
+
+    @Override
+    public KeySet fetch() throws Exception {
+        GooglePublicKeysManager refreshed = keysManager.refresh();
+        return new KeySet(
+                List.copyOf(refreshed.getPublicKeys()),
+                Instant.ofEpochMilli(refreshed.getExpirationTimeMilliseconds()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ecommerce_backend.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Fixed key set for local development and tests, so Google ID tokens signed
+ * with a local key pair can be verified without network access.
+ */
+public class InMemoryGoogleKeySource implements GoogleKeySource {
+
+    private static final Duration VALIDITY = Duration.ofDays(1);
+
+    private final List<PublicKey> keys;
+
+    public InMemoryGoogleKeySource(List<PublicKey> keys) {
+        this.keys = List.copyOf(keys);
+    }
+
+    /**
+     * @param jwks JSON Web Key Set with RSA keys ({@code {"keys":[{"kty":"RSA","n":...,"e":...}]}})
+     */
+    public static InMemoryGoogleKeySource fromJwks(String jwks) {
+        try {
+            List<PublicKey> keys = new ArrayList<>();
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            for (JsonNode key : new ObjectMapper().readTree(jwks).path("keys")) {
+                if (!"RSA".equals(key.path("kty").asText())) {
+                    continue;
+                }
+                BigInteger modulus = new BigInteger(1, decoder.decode(key.path("n").asText()));
+                BigInteger exponent = new BigInteger(1, decoder.decode(key.path("e").asText()));
+                keys.add(keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+            }
+            return new InMemoryGoogleKeySource(keys);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid local Google JWKS", e);
+        }
+    }
+
+    @Override
+    public KeySet fetch() {
+        return new KeySet(keys, Instant.now().plus(VALIDITY));
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.ecommerce_backend.security;
 
+import com.example.ecommerce_backend.cache.UserVersionStore;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,6 +24,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserVersionStore userVersionStore;
     
     @Override
     protected void doFilterInternal(
@@ -44,19 +47,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
         
         try {
-            // Extract username from JWT
-            username = jwtService.extractUsername(jwt);
+            // Verify once and read everything from the same claims
+            Claims claims = jwtService.verify(jwt);
+            username = claims.getSubject();
             
             // If username is present and user is not already authenticated
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                AuthenticatedUser principal = jwtService.toPrincipal(claims);
                 
-                // Validate token
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (principal == null) {
+                    // Token issued before user claims were added: look the user up once
+                    UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                    if (jwtService.isTokenValid(claims, userDetails) && userDetails instanceof UserSecurityState user) {
+                        principal = user.toPrincipal();
+                    }
+                } else if (!userVersionStore.isCurrent(principal.getId(), principal.getSecurityVersion())) {
+                    // User disabled, deleted or changed role since the token was issued
+                    principal = null;
+                }
+                
+                if (principal != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            principal,
                             null,
-                            userDetails.getAuthorities()
+                            principal.getAuthorities()
                     );
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
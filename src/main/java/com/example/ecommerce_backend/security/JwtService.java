@@ -1,22 +1,43 @@
 package com.example.ecommerce_backend.security;
 
+import com.example.ecommerce_backend.entity.Role;
+import com.example.ecommerce_backend.entity.User;
+import com.example.ecommerce_backend.util.TokenHashUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
 @Service
+@RequiredArgsConstructor
 public class JwtService {
     
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_SECURITY_VERSION = "sv";
+    
+    private final TokenHashUtil tokenHashUtil;
+    private final MeterRegistry meterRegistry;
+    
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
     
@@ -26,6 +47,49 @@ public class JwtService {
     @Value("${application.security.jwt.refresh-expiration}")
     private long refreshExpiration;
     
+    @Value("${application.security.jwt.verified-cache-size:10000}")
+    private long verifiedCacheSize;
+    
+    // Built once: the key and parser are immutable and thread-safe
+    private SecretKey signInKey;
+    private JwtParser parser;
+    
+    // Recently verified tokens by SHA-256 hash, each evicted when the token expires
+    private Cache<String, Claims> verifiedTokens;
+    
+    @PostConstruct
+    void init() {
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parser().verifyWith(signInKey).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(Expiry.<String, Claims>creating((hash, claims) -> maxOf(
+                        Duration.ZERO, Duration.between(Instant.now(), claims.getExpiration().toInstant()))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt_verified_tokens");
+    }
+    
+    /**
+     * Verifies the signature and expiry of a token and returns its claims.
+     * Parses each token at most once while it stays in the verified cache.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+     */
+    public Claims verify(String token) {
+        String hash = tokenHashUtil.hashToken(token);
+        Claims cached = verifiedTokens.getIfPresent(hash);
+        if (cached != null && cached.getExpiration().after(new Date())) {
+            return cached;
+        }
+        
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(hash, claims);
+        }
+        return claims;
+    }
+    
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -36,7 +100,33 @@ public class JwtService {
     }
     
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_ROLE, user.getRole().name());
+            claims.put(CLAIM_SECURITY_VERSION, user.getSecurityVersion());
+        } else if (userDetails instanceof UserSecurityState state) {
+            claims.put(CLAIM_USER_ID, state.getId());
+            claims.put(CLAIM_ROLE, state.getRole().name());
+            claims.put(CLAIM_SECURITY_VERSION, state.getSecurityVersion());
+        }
+        return generateToken(claims, userDetails);
+    }
+    
+    /**
+     * Builds the request principal from verified claims.
+     *
+     * @return null for tokens issued without the user claims
+     */
+    public AuthenticatedUser toPrincipal(Claims claims) {
+        Object userId = claims.get(CLAIM_USER_ID);
+        Object role = claims.get(CLAIM_ROLE);
+        Object securityVersion = claims.get(CLAIM_SECURITY_VERSION);
+        if (!(userId instanceof Number id) || !(role instanceof String roleName)
+                || !(securityVersion instanceof Number version)) {
+            return null;
+        }
+        return new AuthenticatedUser(id.longValue(), claims.getSubject(), Role.valueOf(roleName), version.longValue());
     }
     
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -62,29 +152,30 @@ public class JwtService {
     }
     
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(verify(token), userDetails);
     }
     
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Same check against claims already returned by {@link #verify(String)}.
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
     }
     
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
     
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return verify(token);
+    }
+    
+    private static Duration maxOf(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
     }
     
     private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
     }
     
     public long getJwtExpiration() {
@@ -0,0 +1,129 @@
+package com.example.ecommerce_backend.security;
+
+import com.example.ecommerce_backend.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on a small pool sized to the CPU cores, so a login
+ * spike cannot occupy every request thread with BCrypt.
+ *
+ * Work beyond the pool waits in a bounded queue; once that is full (or a
+ * hash waits longer than the timeout) the caller gets a
+ * {@link ServiceOverloadedException}, answered with 503 and Retry-After.
+ */
+@Slf4j
+@Component
+public class PasswordHashingExecutor {
+
+    private static final String OVERLOADED_MESSAGE = "Too many sign-in requests, please try again shortly";
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final long retryAfterSeconds;
+
+    private final Timer hashTimer;
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${application.security.password-hashing.threads:0}") int threads,
+            @Value("${application.security.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${application.security.password-hashing.timeout-ms:5000}") long timeoutMs,
+            @Value("${application.security.password-hashing.retry-after-seconds:2}") long retryAfterSeconds
+    ) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMs = timeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.hashTimer = Timer.builder("password_hashing.duration")
+                .description("Time spent computing one password hash or comparison")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("password_hashing.queue.wait")
+                .description("Time a password hash waited in the queue before starting")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password_hashing.rejected")
+                .description("Password hashes refused because the queue was full or the wait timed out")
+                .register(meterRegistry);
+        Gauge.builder("password_hashing.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Password hashes waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("password_hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes currently running")
+                .register(meterRegistry);
+
+        log.info("Password hashing pool: {} threads, queue capacity {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Runs the hash on the pool and waits for its result.
+     *
+     * @throws ServiceOverloadedException if the queue is full or the wait times out
+     */
+    public <T> T execute(Supplier<T> hash) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                return hashTimer.record(hash);
+            });
+        } catch (RejectedExecutionException e) {
+            throw overloaded();
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw overloaded();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private ServiceOverloadedException overloaded() {
+        rejectedCounter.increment();
+        return new ServiceOverloadedException(OVERLOADED_MESSAGE, retryAfterSeconds);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.ecommerce_backend.security;
+
+import com.example.ecommerce_backend.entity.OAuthProvider;
+import com.example.ecommerce_backend.entity.Role;
+import com.example.ecommerce_backend.entity.User;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable copy of the security-relevant fields of a {@link User},
+ * safe to share between threads from the user details cache. Also carries
+ * the profile fields returned by login, so a successful login needs no
+ * second user lookup.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class UserSecurityState implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final String password;
+    private final Role role;
+    private final long securityVersion;
+    private final boolean enabled;
+    private final boolean accountNonExpired;
+    private final boolean accountNonLocked;
+    private final boolean credentialsNonExpired;
+
+    private final String firstName;
+    private final String lastName;
+    private final String phoneNumber;
+    private final String profileImageUrl;
+    private final OAuthProvider oauthProvider;
+    private final Boolean emailVerified;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    public static UserSecurityState from(User user) {
+        return UserSecurityState.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .role(user.getRole())
+                .securityVersion(user.getSecurityVersion())
+                .enabled(user.isEnabled())
+                .accountNonExpired(user.isAccountNonExpired())
+                .accountNonLocked(user.isAccountNonLocked())
+                .credentialsNonExpired(user.isCredentialsNonExpired())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .phoneNumber(user.getPhoneNumber())
+                .profileImageUrl(user.getProfileImageUrl())
+                .oauthProvider(user.getOauthProvider())
+                .emailVerified(user.getEmailVerified())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+
+    public AuthenticatedUser toPrincipal() {
+        return new AuthenticatedUser(id, username, role, securityVersion);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.cache.CartStore;
+import com.example.ecommerce_backend.repository.CartItemRepository;
+import com.example.ecommerce_backend.repository.CartRepository;
+import com.example.ecommerce_backend.repository.CartRepository.CartOwner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Background job that deletes carts (and their items) not modified for
+ * longer than the configured TTL.
+ *
+ * Carts are claimed oldest first in small chunks with FOR UPDATE SKIP LOCKED,
+ * each chunk in its own short transaction, with a pause between chunks so the
+ * job never competes with live traffic for long.
+ */
+@Slf4j
+@Service
+public class AbandonedCartPurgeService {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter cartsCounter;
+    private final Counter itemsCounter;
+    private final Timer batchTimer;
+
+    @Value("${application.cart.purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.cart.purge.ttl-days:30}")
+    private long ttlDays;
+
+    @Value("${application.cart.purge.batch-size:500}")
+    private int batchSize;
+
+    @Value("${application.cart.purge.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${application.cart.purge.pause-between-batches-ms:200}")
+    private long pauseMs;
+
+    public AbandonedCartPurgeService(
+            CartRepository cartRepository,
+            CartItemRepository cartItemRepository,
+            CartStore cartStore,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.cartStore = cartStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cartsCounter = Counter.builder("cart.purge.carts")
+                .description("Abandoned carts deleted by the purge job")
+                .register(meterRegistry);
+        this.itemsCounter = Counter.builder("cart.purge.items")
+                .description("Cart items deleted together with abandoned carts")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("cart.purge.batch.duration")
+                .description("Time spent deleting one chunk of abandoned carts")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${application.cart.purge.interval-ms:600000}",
+            initialDelayString = "${application.cart.purge.interval-ms:600000}"
+    )
+    public void purgeAbandonedCarts() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(ttlDays);
+        long started = System.nanoTime();
+        int total = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Timer.Sample sample = Timer.start();
+            int deleted = purgeBatch(cutoff);
+            sample.stop(batchTimer);
+            total += deleted;
+            if (deleted < batchSize || !pause()) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            log.info("Purged {} abandoned carts in {} s ({} carts/s)",
+                    total,
+                    String.format("%.2f", seconds),
+                    String.format("%.1f", total / Math.max(seconds, 0.001)));
+        }
+    }
+
+    /**
+     * Claims and deletes a single chunk in one transaction.
+     *
+     * @return number of carts deleted
+     */
+    private int purgeBatch(LocalDateTime cutoff) {
+        List<CartOwner> purged = transactionTemplate.execute(status -> {
+            List<CartOwner> carts = cartRepository.lockAbandonedCarts(cutoff, batchSize);
+            if (carts.isEmpty()) {
+                return carts;
+            }
+
+            List<Long> cartIds = carts.stream().map(CartOwner::getId).toList();
+            itemsCounter.increment(cartItemRepository.deleteByCartIds(cartIds));
+            cartRepository.deleteByIds(cartIds);
+            return carts;
+        });
+
+        if (purged == null || purged.isEmpty()) {
+            return 0;
+        }
+
+        // A snapshot can outlive its row when the user only read the cart
+        purged.forEach(cart -> cartStore.invalidate(cart.getUserId()));
+        cartsCounter.increment(purged.size());
+        log.debug("Purged chunk of {} abandoned carts", purged.size());
+        return purged.size();
+    }
+
+    /**
+     * @return false if the job was interrupted and should stop
+     */
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.ecommerce_backend.service;
 
+import com.example.ecommerce_backend.cache.UserDetailsCache;
 import com.example.ecommerce_backend.dto.request.LoginRequest;
 import com.example.ecommerce_backend.dto.request.OAuthLoginRequest;
 import com.example.ecommerce_backend.dto.request.RegisterRequest;
@@ -10,8 +11,11 @@ import com.example.ecommerce_backend.entity.Role;
 import com.example.ecommerce_backend.entity.User;
 import com.example.ecommerce_backend.exception.BadRequestException;
 import com.example.ecommerce_backend.exception.DuplicateResourceException;
+import com.example.ecommerce_backend.exception.ResourceNotFoundException;
 import com.example.ecommerce_backend.repository.UserRepository;
 import com.example.ecommerce_backend.security.JwtService;
+import com.example.ecommerce_backend.security.UserSecurityState;
+import com.example.ecommerce_backend.util.ClientIpResolver;
 import com.example.ecommerce_backend.util.CookieUtil;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,10 +24,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 
@@ -39,8 +46,18 @@ public class AuthenticationService {
     private final RefreshTokenService refreshTokenService;
     private final CookieUtil cookieUtil;
     private final GoogleTokenValidatorService googleTokenValidator;
+    private final GuestCartService guestCartService;
+    private final LoginAttemptService loginAttemptService;
+    private final UserProvisioningService userProvisioningService;
+    private final LoginActivityService loginActivityService;
+    private final UserDetailsCache userDetailsCache;
+    private final ClientIpResolver clientIpResolver;
+    private final TransactionTemplate transactionTemplate;
     
-    @Transactional
+    /**
+     * Not transactional: the password is hashed before any connection is
+     * taken, and the user insert commits on its own.
+     */
     public AuthenticationResponse register(
             @NonNull RegisterRequest request,
             @NonNull HttpServletRequest httpRequest,
@@ -51,21 +68,14 @@ public class AuthenticationService {
             throw new BadRequestException("Passwords do not match");
         }
         
-        // Check if username already exists
-        if (userRepository.existsByUsername(request.getUsername())) {
-            throw new DuplicateResourceException("Username already exists");
-        }
+        // Hash outside any transaction (may queue for the bounded hashing pool)
+        String passwordHash = passwordEncoder.encode(request.getPassword());
         
-        // Check if email already exists
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new DuplicateResourceException("Email already exists");
-        }
-        
-        // Create new user
-        User user = User.builder()
+        // Create new user (duplicate username/email rejected by the unique constraints)
+        User user = userProvisioningService.create(User.builder()
                 .username(request.getUsername())
                 .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHash)
                 .firstName(request.getFirstName())
                 .lastName(request.getLastName())
                 .phoneNumber(request.getPhoneNumber())
@@ -76,42 +86,68 @@ public class AuthenticationService {
                 .accountNonExpired(true)
                 .accountNonLocked(true)
                 .credentialsNonExpired(true)
-                .build();
+                .build());
         
-        userRepository.save(user);
         log.info("New user registered: {}", user.getUsername());
         
-        return generateAuthenticationResponse(user, httpRequest, httpResponse);
+        return transactionTemplate.execute(status ->
+                generateAuthenticationResponse(user, httpRequest, httpResponse));
     }
     
-    @Transactional
+    /**
+     * Not transactional: the password check runs first, without holding a
+     * connection, and only the writes that follow share a transaction.
+     */
     public AuthenticationResponse login(
             @NonNull LoginRequest request,
             @NonNull HttpServletRequest httpRequest,
             @NonNull HttpServletResponse httpResponse
     ) {
-        // Authenticate user
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getUsernameOrEmail(),
-                        request.getPassword()
-                )
-        );
-        
-        // Find user
-        User user = userRepository.findByUsernameOrEmail(
-                        request.getUsernameOrEmail(),
-                        request.getUsernameOrEmail()
-                )
-                .orElseThrow(() -> new BadRequestException("Invalid credentials"));
+        // Reject throttled accounts/IPs before any password hashing
+        String clientIp = clientIpResolver.resolve(httpRequest);
+        loginAttemptService.checkAllowed(request.getUsernameOrEmail(), clientIp);
         
-        // Update last login
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+        // Authenticate user (loads the user once; reused below)
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            request.getUsernameOrEmail(),
+                            request.getPassword()
+                    )
+            );
+        } catch (BadCredentialsException e) {
+            loginAttemptService.recordFailure(request.getUsernameOrEmail(), clientIp);
+            throw e;
+        }
+        loginAttemptService.recordSuccess(request.getUsernameOrEmail());
+        UserSecurityState user = (UserSecurityState) authentication.getPrincipal();
+        
+        // Update last login (written behind, batched with other logins)
+        LocalDateTime now = LocalDateTime.now();
+        loginActivityService.recordLogin(user.getId(), now);
         
         log.info("User logged in: {}", user.getUsername());
         
-        return generateAuthenticationResponse(user, httpRequest, httpResponse);
+        String rawRefreshToken = transactionTemplate.execute(status -> {
+            // Merge anonymous cart (if any) once this transaction commits
+            guestCartService.mergeIntoUserCart(user.getId(), httpRequest, httpResponse);
+            
+            // The refresh token row only needs the user's id
+            return refreshTokenService.createRefreshToken(
+                    userRepository.getReferenceById(user.getId()), httpRequest);
+        });
+        cookieUtil.createRefreshTokenCookie(httpResponse, rawRefreshToken);
+        
+        // Access token from the loaded state
+        String accessToken = jwtService.generateToken(user);
+        
+        return AuthenticationResponse.builder()
+                .accessToken(accessToken)
+                .tokenType("Bearer")
+                .expiresIn(jwtService.getJwtExpiration())
+                .user(mapToUserResponse(user, now))
+                .build();
     }
     
     /**
@@ -175,6 +211,9 @@ public class AuthenticationService {
         
         log.info("OAuth login successful for user: {} (provider: {})", user.getEmail(), provider);
         
+        // Merge anonymous cart (if any) once this transaction commits
+        guestCartService.mergeIntoUserCart(user.getId(), httpRequest, httpResponse);
+        
         return generateAuthenticationResponse(user, httpRequest, httpResponse);
     }
     
@@ -225,27 +264,32 @@ public class AuthenticationService {
     private User createOAuthUser(OAuthLoginRequest request, OAuthProvider provider) {
         // Generate unique username from email
         String baseUsername = request.getEmail().split("@")[0];
-        String username = generateUniqueUsername(baseUsername);
         
-        User user = User.builder()
-                .username(username)
-                .email(request.getEmail())
-                .password(null) // OAuth users don't have password
-                .firstName(request.getFirstName())
-                .lastName(request.getLastName())
-                .profileImageUrl(request.getProfileImageUrl())
-                .role(Role.USER) // Default role for new users
-                .oauthProvider(provider)
-                .oauthProviderId(request.getProviderId())
-                .emailVerified(true) // OAuth providers verify emails
-                .enabled(true)
-                .accountNonExpired(true)
-                .accountNonLocked(true)
-                .credentialsNonExpired(true)
-                .build();
+        User savedUser;
+        try {
+            savedUser = userProvisioningService.createWithUniqueUsername(baseUsername, username -> User.builder()
+                    .username(username)
+                    .email(request.getEmail())
+                    .password(null) // OAuth users don't have password
+                    .firstName(request.getFirstName())
+                    .lastName(request.getLastName())
+                    .profileImageUrl(request.getProfileImageUrl())
+                    .role(Role.USER) // Default role for new users
+                    .oauthProvider(provider)
+                    .oauthProviderId(request.getProviderId())
+                    .emailVerified(true) // OAuth providers verify emails
+                    .enabled(true)
+                    .accountNonExpired(true)
+                    .accountNonLocked(true)
+                    .credentialsNonExpired(true)
+                    .build());
+        } catch (DuplicateResourceException e) {
+            // A parallel first login for the same account created it first
+            return userRepository.findByOauthProviderAndOauthProviderId(provider, request.getProviderId())
+                    .orElseThrow(() -> e);
+        }
         
-        User savedUser = userRepository.save(user);
-        log.info("Created new OAuth user with username: {}", username);
+        log.info("Created new OAuth user with username: {}", savedUser.getUsername());
         
         return savedUser;
     }
@@ -279,6 +323,8 @@ public class AuthenticationService {
         }
         
         if (updated) {
+            // Cached login state carries the profile fields
+            userDetailsCache.evict(user);
             userRepository.save(user);
             log.info("Updated OAuth user info: {}", user.getEmail());
         }
@@ -286,32 +332,6 @@ public class AuthenticationService {
         return user;
     }
     
-    /**
-     * Generates a unique username by appending numbers if needed
-     */
-    private String generateUniqueUsername(String baseUsername) {
-        String username = baseUsername.replaceAll("[^a-zA-Z0-9]", ""); // Remove special chars
-        
-        if (username.isEmpty()) {
-            username = "user";
-        }
-        
-        // Check if base username is available
-        if (!userRepository.existsByUsername(username)) {
-            return username;
-        }
-        
-        // Append numbers until we find an available username
-        int counter = 1;
-        String candidateUsername;
-        do {
-            candidateUsername = username + counter;
-            counter++;
-        } while (userRepository.existsByUsername(candidateUsername));
-        
-        return candidateUsername;
-    }
-    
     @Transactional
     public AuthenticationResponse refreshToken(
             @NonNull HttpServletRequest httpRequest,
@@ -322,12 +342,10 @@ public class AuthenticationService {
                 .orElseThrow(() -> new BadRequestException("Refresh token not found"));
         
         // Rotate token: verify old token, create new one, revoke old one
-        // Returns new RAW token
-        String newRawToken = refreshTokenService.rotateRefreshToken(rawRefreshToken, httpRequest);
-        
-        // Verify the new token to get user information
-        // This verifies by hashing and looking up in DB
-        User user = refreshTokenService.getUserFromToken(newRawToken);
+        // Returns new RAW token and the user it belongs to
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(rawRefreshToken, httpRequest);
+        String newRawToken = rotation.rawToken();
+        User user = rotation.user();
         
         // Generate new access token
         String accessToken = jwtService.generateToken(user);
@@ -363,9 +381,11 @@ public class AuthenticationService {
     
     @Transactional
     public void logoutAllDevices(
-            @NonNull User user,
+            @NonNull Long userId,
             @NonNull HttpServletResponse httpResponse
     ) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         refreshTokenService.revokeAllUserTokens(user);
         cookieUtil.deleteRefreshTokenCookie(httpResponse);
         log.info("User logged out from all devices: {}", user.getUsername());
@@ -417,4 +437,23 @@ public class AuthenticationService {
                 .lastLogin(user.getLastLogin())
                 .build();
     }
+    
+    private UserResponse mapToUserResponse(@NonNull UserSecurityState user, LocalDateTime lastLogin) {
+        return UserResponse.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .phoneNumber(user.getPhoneNumber())
+                .profileImageUrl(user.getProfileImageUrl())
+                .role(user.getRole())
+                .oauthProvider(user.getOauthProvider())
+                .emailVerified(user.getEmailVerified())
+                .enabled(user.isEnabled())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .lastLogin(lastLogin)
+                .build();
+    }
 }
\ No newline at end of file
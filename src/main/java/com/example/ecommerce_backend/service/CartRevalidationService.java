@@ -0,0 +1,243 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.cache.CacheInvalidationChannel;
+import com.example.ecommerce_backend.cache.CartStore;
+import com.example.ecommerce_backend.dto.response.CartResponse;
+import com.example.ecommerce_backend.dto.response.CartResponse.CartItemResponse;
+import com.example.ecommerce_backend.repository.ProductSizeRepository;
+import com.example.ecommerce_backend.repository.ProductSizeRepository.Availability;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Checks cart lines against the current stock and price of their sizes.
+ *
+ * Carts loaded from the database are already current (sizes are join-fetched),
+ * so only cached snapshots can go stale. After a catalog change the background
+ * job walks the cached carts in batches, with one availability query per batch;
+ * after a stock change by an order it walks only the carts holding those sizes.
+ * Changes are broadcast through {@link CacheInvalidationChannel}, so every node
+ * revalidates its own cached carts.
+ */
+@Slf4j
+@Service
+public class CartRevalidationService {
+
+    private static final String TOPIC = "catalog";
+    // Keeps a NOTIFY payload well under PostgreSQL's 8000 byte limit
+    private static final int MAX_IDS_PER_MESSAGE = 500;
+
+    private final ProductSizeRepository productSizeRepository;
+    private final CartStore cartStore;
+    private final CacheInvalidationChannel invalidationChannel;
+    private final AtomicBoolean catalogChanged = new AtomicBoolean();
+    private final Set<Long> changedSizeIds = ConcurrentHashMap.newKeySet();
+
+    private final Counter cartsCounter;
+    private final Counter flaggedLinesCounter;
+
+    @Value("${application.cart.revalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.cart.revalidation.batch-size:500}")
+    private int batchSize;
+
+    public CartRevalidationService(
+            ProductSizeRepository productSizeRepository,
+            CartStore cartStore,
+            CacheInvalidationChannel invalidationChannel,
+            MeterRegistry meterRegistry
+    ) {
+        this.productSizeRepository = productSizeRepository;
+        this.cartStore = cartStore;
+        this.invalidationChannel = invalidationChannel;
+        this.cartsCounter = Counter.builder("cart.revalidation.carts")
+                .description("Cached carts revalidated against the catalog")
+                .register(meterRegistry);
+        this.flaggedLinesCounter = Counter.builder("cart.revalidation.flagged_lines")
+                .description("Cart lines found with a price change or insufficient stock")
+                .register(meterRegistry);
+        invalidationChannel.subscribe(TOPIC, payload -> {
+            if (!enabled) {
+                return;
+            }
+            if (payload.isEmpty()) {
+                catalogChanged.set(true);
+                return;
+            }
+            for (String id : payload.split(",")) {
+                changedSizeIds.add(Long.valueOf(id));
+            }
+        });
+    }
+
+    /**
+     * Schedules a revalidation of cached carts on every node. Inside a
+     * transaction the flag is only raised after commit (and the broadcast is
+     * delivered on commit), so the job never reads the old catalog.
+     */
+    public void markCatalogChanged() {
+        invalidationChannel.publish(TOPIC, "");
+        afterCommit(() -> catalogChanged.set(true));
+    }
+
+    /**
+     * Schedules a revalidation of the cached carts, on every node, that hold
+     * any of these sizes, e.g. after an order took or returned their stock.
+     */
+    public void markStockChanged(Collection<Long> sizeIds) {
+        if (!enabled || sizeIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(sizeIds);
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_MESSAGE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_MESSAGE, ids.size()));
+            invalidationChannel.publish(TOPIC, chunk.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        afterCommit(() -> changedSizeIds.addAll(ids));
+    }
+
+    /**
+     * Revalidates one cart with a single query.
+     */
+    public CartResponse revalidate(CartResponse cart) {
+        if (cart.getItems().isEmpty()) {
+            return cart;
+        }
+        Set<Long> sizeIds = sizeIds(List.of(cart));
+        return apply(cart, sizeIds, loadAvailability(sizeIds));
+    }
+
+    @Scheduled(fixedDelayString = "${application.cart.revalidation.interval-ms:30000}")
+    public void revalidateCachedCarts() {
+        if (!enabled) {
+            return;
+        }
+        boolean allCarts = catalogChanged.getAndSet(false);
+        Set<Long> sizes = Set.copyOf(changedSizeIds);
+        changedSizeIds.removeAll(sizes);
+        if (!allCarts && sizes.isEmpty()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        List<Long> userIds = allCarts ? cartStore.cachedUserIds() : cachedUserIdsHolding(sizes);
+
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            List<Long> batch = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+            try {
+                revalidateBatch(batch);
+            } catch (RuntimeException e) {
+                log.error("Failed to revalidate {} cached carts: {}", batch.size(), e.getMessage());
+            }
+        }
+
+        if (!userIds.isEmpty()) {
+            log.info("Revalidated {} cached carts in {} ms",
+                    userIds.size(), (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    private void revalidateBatch(List<Long> userIds) {
+        List<CartResponse> carts = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            CartResponse cart = cartStore.get(userId);
+            if (cart != null && !cart.getItems().isEmpty()) {
+                carts.add(cart);
+            }
+        }
+        if (carts.isEmpty()) {
+            return;
+        }
+
+        Set<Long> sizeIds = sizeIds(carts);
+        Map<Long, Availability> availability = loadAvailability(sizeIds);
+        for (CartResponse cart : carts) {
+            // Applied to the latest snapshot, which may have changed since it was read
+            cartStore.refresh(cart.getUserId(), latest -> apply(latest, sizeIds, availability));
+        }
+        cartsCounter.increment(carts.size());
+    }
+
+    private List<Long> cachedUserIdsHolding(Set<Long> sizeIds) {
+        List<Long> userIds = new ArrayList<>();
+        for (Long userId : cartStore.cachedUserIds()) {
+            CartResponse cart = cartStore.get(userId);
+            if (cart != null && cart.getItems().stream().anyMatch(item -> sizeIds.contains(item.getSizeId()))) {
+                userIds.add(userId);
+            }
+        }
+        return userIds;
+    }
+
+    /**
+     * @param queried sizes the availability map was loaded for; lines added since
+     *                then came from the database and are left as they are
+     */
+    private CartResponse apply(CartResponse cart, Set<Long> queried, Map<Long, Availability> availability) {
+        List<CartItemResponse> items = new ArrayList<>(cart.getItems().size());
+        int flagged = 0;
+
+        for (CartItemResponse item : cart.getItems()) {
+            CartItemResponse line = item;
+            Availability current = availability.get(item.getSizeId());
+            if (current != null) {
+                line = item.revalidate(current.getStock(), current.getCurrentPrice());
+            } else if (queried.contains(item.getSizeId())) {
+                line = item.revalidate(0, item.getPrice()); // size removed from the catalog
+            }
+            if (Boolean.TRUE.equals(line.getPriceChanged()) || Boolean.TRUE.equals(line.getOutOfStock())) {
+                flagged++;
+            }
+            items.add(line);
+        }
+
+        flaggedLinesCounter.increment(flagged);
+        return cart.withItems(items, cart.getVersion());
+    }
+
+    private Map<Long, Availability> loadAvailability(Set<Long> sizeIds) {
+        return productSizeRepository.findAvailabilityByIdIn(sizeIds).stream()
+                .collect(Collectors.toMap(Availability::getId, Function.identity()));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Set<Long> sizeIds(List<CartResponse> carts) {
+        Set<Long> ids = new HashSet<>();
+        for (CartResponse cart : carts) {
+            for (CartItemResponse item : cart.getItems()) {
+                ids.add(item.getSizeId());
+            }
+        }
+        return ids;
+    }
+}
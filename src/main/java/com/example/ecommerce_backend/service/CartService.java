@@ -1,13 +1,21 @@
 package com.example.ecommerce_backend.service;
 
 import com.example.ecommerce_backend.dto.request.AddToCartRequest;
+import com.example.ecommerce_backend.dto.request.CartBatchRequest;
 import com.example.ecommerce_backend.dto.request.UpdateCartItemRequest;
 import com.example.ecommerce_backend.dto.response.CartResponse;
 
+import java.util.Map;
+
 public interface CartService {
     
     CartResponse getCart(Long userId);
     
+    /**
+     * Returns the cart with every line checked against current stock and price.
+     */
+    CartResponse revalidateCart(Long userId);
+    
     CartResponse addToCart(Long userId, AddToCartRequest request);
     
     CartResponse updateCartItem(Long userId, Long cartItemId, UpdateCartItemRequest request);
@@ -15,4 +23,16 @@ public interface CartService {
     CartResponse removeCartItem(Long userId, Long cartItemId);
     
     void clearCart(Long userId);
+    
+    /**
+     * Applies an ordered list of add/update/remove operations in one transaction.
+     * Cart limits and stock are validated once against the final state.
+     */
+    CartResponse applyBatch(Long userId, CartBatchRequest request);
+    
+    /**
+     * Merges guest cart lines (productSizeId -> quantity) into the user's cart.
+     * Lines that are unavailable or exceed cart limits are clamped or skipped.
+     */
+    CartResponse mergeGuestCart(Long userId, Map<Long, Integer> guestQuantities);
 }
\ No newline at end of file
@@ -1,78 +1,234 @@
 package com.example.ecommerce_backend.service;
 
+import com.example.ecommerce_backend.security.GoogleKeySource;
+import com.example.ecommerce_backend.security.GoogleKeySource.KeySet;
+import com.example.ecommerce_backend.util.TokenHashUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Verifies Google ID tokens against an explicitly managed key set.
+ *
+ * Keys are refreshed in the background before they expire, so requests
+ * normally never wait for a fetch. A request only fetches when no keys are
+ * loaded yet or a token is signed by a key we do not have (Google rotated
+ * early), at most once per minimum refresh interval. Successful
+ * verifications are cached briefly by token hash.
+ */
 @Service
 @Slf4j
 public class GoogleTokenValidatorService {
-    
+
+    private static final List<String> ISSUERS = List.of("accounts.google.com", "https://accounts.google.com");
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+
+    private final GoogleKeySource keySource;
+    private final TokenHashUtil tokenHashUtil;
+    private final Cache<String, GoogleIdToken.Payload> verifiedTokens;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private final Counter refreshCounter;
+    private final Counter refreshFailureCounter;
+
     @Value("${oauth.google.client-id}")
     private String googleClientId;
-    
-    private GoogleIdTokenVerifier verifier;
-    
+
+    @Value("${oauth.google.clock-skew-seconds:300}")
+    private long clockSkewSeconds;
+
+    @Value("${oauth.google.key-refresh-ahead-seconds:300}")
+    private long refreshAheadSeconds;
+
+    @Value("${oauth.google.key-min-refresh-interval-seconds:30}")
+    private long minRefreshIntervalSeconds;
+
+    private volatile KeySet keys;
+    private volatile long lastRefreshAttempt;
+
+    public GoogleTokenValidatorService(
+            GoogleKeySource keySource,
+            TokenHashUtil tokenHashUtil,
+            MeterRegistry meterRegistry,
+            @Value("${oauth.google.verified-cache-size:10000}") long verifiedCacheSize,
+            @Value("${oauth.google.verified-cache-ttl-seconds:60}") long verifiedCacheTtlSeconds
+    ) {
+        this.keySource = keySource;
+        this.tokenHashUtil = tokenHashUtil;
+        Duration ttl = Duration.ofSeconds(verifiedCacheTtlSeconds);
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(Expiry.<String, GoogleIdToken.Payload>creating((hash, payload) -> {
+                    Duration untilExpiry = Duration.between(Instant.now(), expiresAt(payload));
+                    return untilExpiry.isNegative() ? Duration.ZERO : untilExpiry.compareTo(ttl) < 0 ? untilExpiry : ttl;
+                }))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "google_verified_tokens");
+        this.refreshCounter = Counter.builder("oauth.google.key_refresh")
+                .tag("outcome", "success")
+                .description("Google signing key set fetches")
+                .register(meterRegistry);
+        this.refreshFailureCounter = Counter.builder("oauth.google.key_refresh")
+                .tag("outcome", "failure")
+                .description("Google signing key set fetches")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        // Startup does not wait for (or fail on) the key endpoint
+        CompletableFuture.runAsync(() -> refreshKeys(true));
+    }
+
     /**
      * Validates a Google ID token and returns the payload.
-     * 
+     *
      * @param idToken The Google ID token to validate
      * @return GoogleIdToken.Payload if valid, null otherwise
      */
     public GoogleIdToken.Payload validateToken(String idToken) {
+        if (idToken == null || idToken.isBlank()) {
+            return null;
+        }
+
+        String hash = tokenHashUtil.hashToken(idToken);
+        GoogleIdToken.Payload cached = verifiedTokens.getIfPresent(hash);
+        if (cached != null && expiresAt(cached).isAfter(Instant.now())) {
+            return cached;
+        }
+
         try {
-            // Initialize verifier if needed
-            if (verifier == null) {
-                verifier = new GoogleIdTokenVerifier.Builder(
-                    new NetHttpTransport(), 
-                    new GsonFactory()
-                )
-                .setAudience(Collections.singletonList(googleClientId))
-                .build();
-            }
-            
-            // Verify the token
-            GoogleIdToken token = verifier.verify(idToken);
-            
-            if (token != null) {
-                GoogleIdToken.Payload payload = token.getPayload();
-                
-                // Log verification success
-                log.info("Google token validated for user: {}", payload.getEmail());
-                
-                // Check email verification
-                Boolean emailVerified = payload.getEmailVerified();
-                if (emailVerified == null || !emailVerified) {
-                    log.warn("Email not verified for Google user: {}", payload.getEmail());
-                }
-                
-                return payload;
-            } else {
+            GoogleIdToken token = GoogleIdToken.parse(JSON_FACTORY, idToken);
+
+            if (!verifyClaims(token) || !verifySignature(token)) {
                 log.error("Invalid Google ID token - verification failed");
                 return null;
             }
-            
+
+            GoogleIdToken.Payload payload = token.getPayload();
+            log.info("Google token validated for user: {}", payload.getEmail());
+
+            // Check email verification
+            Boolean emailVerified = payload.getEmailVerified();
+            if (emailVerified == null || !emailVerified) {
+                log.warn("Email not verified for Google user: {}", payload.getEmail());
+            }
+
+            verifiedTokens.put(hash, payload);
+            return payload;
+
         } catch (Exception e) {
             log.error("Error validating Google token: {}", e.getMessage(), e);
             return null;
         }
     }
-    
+
     public String getEmail(GoogleIdToken.Payload payload) {
         return payload.getEmail();
     }
-    
+
     public String getProviderId(GoogleIdToken.Payload payload) {
         return payload.getSubject();
     }
-    
+
     public Boolean isEmailVerified(GoogleIdToken.Payload payload) {
         return payload.getEmailVerified();
     }
-}
\ No newline at end of file
+
+    /**
+     * Refreshes the key set ahead of its expiry, off the request path.
+     */
+    @Scheduled(fixedDelayString = "${oauth.google.key-check-interval-ms:60000}")
+    public void refreshIfExpiring() {
+        KeySet current = keys;
+        if (current == null || current.isExpired(Instant.now().plusSeconds(refreshAheadSeconds))) {
+            refreshKeys(true);
+        }
+    }
+
+    private boolean verifyClaims(GoogleIdToken token) {
+        return token.verifyIssuer(ISSUERS)
+                && token.verifyAudience(List.of(googleClientId))
+                && token.verifyTime(System.currentTimeMillis(), clockSkewSeconds);
+    }
+
+    private boolean verifySignature(GoogleIdToken token) throws GeneralSecurityException {
+        KeySet current = keys;
+        if (current == null) {
+            current = refreshKeys(false);
+        }
+        if (current != null && signedByAny(token, current)) {
+            return true;
+        }
+
+        // Unknown signer: Google may have published a new key since our last fetch
+        KeySet refreshed = refreshKeys(false);
+        return refreshed != null && refreshed != current && signedByAny(token, refreshed);
+    }
+
+    private static boolean signedByAny(GoogleIdToken token, KeySet keySet) throws GeneralSecurityException {
+        for (PublicKey key : keySet.keys()) {
+            if (token.verifySignature(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fetches the key set, one caller at a time. Callers that waited for a
+     * fetch started after their request reuse its result.
+     *
+     * @param force skip the minimum interval between fetches (background refresh)
+     * @return the current key set, possibly stale if the fetch failed
+     */
+    private KeySet refreshKeys(boolean force) {
+        long requested = System.currentTimeMillis();
+        refreshLock.lock();
+        try {
+            long last = lastRefreshAttempt;
+            if (last >= requested || (!force && requested - last < minRefreshIntervalSeconds * 1000)) {
+                return keys;
+            }
+            lastRefreshAttempt = System.currentTimeMillis();
+
+            KeySet fetched = keySource.fetch();
+            keys = fetched;
+            refreshCounter.increment();
+            log.debug("Loaded {} Google signing keys, valid until {}", fetched.keys().size(), fetched.expiresAt());
+            return fetched;
+        } catch (Exception e) {
+            // Google keeps retired keys published for a while, so stale keys stay usable
+            refreshFailureCounter.increment();
+            log.error("Failed to refresh Google signing keys: {}", e.getMessage());
+            return keys;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private static Instant expiresAt(GoogleIdToken.Payload payload) {
+        Long exp = payload.getExpirationTimeSeconds();
+        return exp != null ? Instant.ofEpochSecond(exp) : Instant.EPOCH;
+    }
+}
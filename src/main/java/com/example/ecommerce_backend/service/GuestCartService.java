@@ -0,0 +1,281 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.cache.GuestCartStore;
+import com.example.ecommerce_backend.cache.GuestCartStore.GuestCart;
+import com.example.ecommerce_backend.dto.request.AddToCartRequest;
+import com.example.ecommerce_backend.dto.request.UpdateCartItemRequest;
+import com.example.ecommerce_backend.dto.response.CartResponse;
+import com.example.ecommerce_backend.entity.Product;
+import com.example.ecommerce_backend.entity.ProductSize;
+import com.example.ecommerce_backend.exception.BadRequestException;
+import com.example.ecommerce_backend.exception.CartLimitExceededException;
+import com.example.ecommerce_backend.exception.InsufficientStockException;
+import com.example.ecommerce_backend.exception.ResourceNotFoundException;
+import com.example.ecommerce_backend.repository.ProductSizeRepository;
+import com.example.ecommerce_backend.util.CookieUtil;
+import com.example.ecommerce_backend.util.TokenHashUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.example.ecommerce_backend.service.Impl.CartServiceImpl.MAX_CART_ITEMS;
+import static com.example.ecommerce_backend.service.Impl.CartServiceImpl.MAX_QUANTITY_PER_ITEM;
+import static com.example.ecommerce_backend.service.Impl.CartServiceImpl.MAX_UNIQUE_ITEMS;
+
+/**
+ * Server-side carts for anonymous visitors.
+ * Lines live in {@link GuestCartStore}; product data is read only to render responses
+ * and validate adds. The cart is merged into the user's cart on login.
+ */
+@Slf4j
+@Service
+public class GuestCartService {
+
+    private final GuestCartStore guestCartStore;
+    private final ProductSizeRepository productSizeRepository;
+    private final CartService cartService;
+    private final CookieUtil cookieUtil;
+    private final TokenHashUtil tokenHashUtil;
+    private final TransactionTemplate mergeTransaction;
+
+    public GuestCartService(
+            GuestCartStore guestCartStore,
+            ProductSizeRepository productSizeRepository,
+            CartService cartService,
+            CookieUtil cookieUtil,
+            TokenHashUtil tokenHashUtil,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.guestCartStore = guestCartStore;
+        this.productSizeRepository = productSizeRepository;
+        this.cartService = cartService;
+        this.cookieUtil = cookieUtil;
+        this.tokenHashUtil = tokenHashUtil;
+        // Own transaction, so a failed merge cannot mark the caller's rollback-only
+        this.mergeTransaction = new TransactionTemplate(transactionManager);
+        this.mergeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Transactional(readOnly = true)
+    public CartResponse getCart(@NonNull HttpServletRequest httpRequest) {
+        return toResponse(findCart(httpRequest));
+    }
+
+    @Transactional(readOnly = true)
+    public CartResponse addToCart(
+            @NonNull AddToCartRequest request,
+            @NonNull HttpServletRequest httpRequest,
+            @NonNull HttpServletResponse httpResponse
+    ) {
+        ProductSize productSize = productSizeRepository.findByIdWithProduct(request.getProductSizeId())
+                .orElseThrow(() -> new ResourceNotFoundException("Product size not found"));
+
+        if (!productSize.getProduct().getId().equals(request.getProductId())) {
+            throw new BadRequestException("Product size does not belong to this product");
+        }
+
+        if (productSize.getStock() <= 0) {
+            throw new InsufficientStockException("Size " + productSize.getSize() + " is out of stock");
+        }
+
+        GuestCart cart = findCart(httpRequest);
+        if (cart == null) {
+            // Unknown or expired id: always mint a fresh one rather than trusting the cookie
+            String guestId = tokenHashUtil.generateSecureToken();
+            cart = guestCartStore.create(guestId);
+            cookieUtil.createGuestCartCookie(httpResponse, guestId);
+        }
+
+        synchronized (cart) {
+            int current = cart.quantityOf(productSize.getId());
+            int newQuantity = current + request.getQuantity();
+
+            if (current == 0 && cart.lineCount() >= MAX_UNIQUE_ITEMS) {
+                throw new CartLimitExceededException("Maximum " + MAX_UNIQUE_ITEMS + " different items allowed in cart.");
+            }
+            validateQuantity(cart, productSize, current, newQuantity);
+
+            cart.setQuantity(productSize.getId(), newQuantity);
+        }
+
+        return toResponse(cart);
+    }
+
+    @Transactional(readOnly = true)
+    public CartResponse updateItem(
+            @NonNull Long productSizeId,
+            @NonNull UpdateCartItemRequest request,
+            @NonNull HttpServletRequest httpRequest
+    ) {
+        GuestCart cart = requireCart(httpRequest);
+        ProductSize productSize = productSizeRepository.findByIdWithProduct(productSizeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product size not found"));
+
+        synchronized (cart) {
+            int current = cart.quantityOf(productSizeId);
+            if (current == 0) {
+                throw new ResourceNotFoundException("Cart item not found");
+            }
+            validateQuantity(cart, productSize, current, request.getQuantity());
+
+            cart.setQuantity(productSizeId, request.getQuantity());
+        }
+
+        return toResponse(cart);
+    }
+
+    @Transactional(readOnly = true)
+    public CartResponse removeItem(@NonNull Long productSizeId, @NonNull HttpServletRequest httpRequest) {
+        GuestCart cart = requireCart(httpRequest);
+        if (cart.quantityOf(productSizeId) == 0) {
+            throw new ResourceNotFoundException("Cart item not found");
+        }
+
+        cart.setQuantity(productSizeId, 0);
+        return toResponse(cart);
+    }
+
+    public void clearCart(@NonNull HttpServletRequest httpRequest, @NonNull HttpServletResponse httpResponse) {
+        cookieUtil.getGuestCartIdFromCookie(httpRequest).ifPresent(guestCartStore::remove);
+        cookieUtil.deleteGuestCartCookie(httpResponse);
+    }
+
+    /**
+     * Merges the visitor's guest cart, if any, into the user's cart and drops it.
+     * Called from login: the merge runs once the login transaction commits, in
+     * its own transaction, and is best effort. If it fails the guest cart is
+     * kept (with its cookie) and the login still succeeds.
+     */
+    public void mergeIntoUserCart(
+            @NonNull Long userId,
+            @NonNull HttpServletRequest httpRequest,
+            @NonNull HttpServletResponse httpResponse
+    ) {
+        String guestId = cookieUtil.getGuestCartIdFromCookie(httpRequest).orElse(null);
+        if (guestId == null) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    merge(userId, guestId, httpResponse);
+                }
+            });
+        } else {
+            merge(userId, guestId, httpResponse);
+        }
+    }
+
+    private void merge(Long userId, String guestId, HttpServletResponse httpResponse) {
+        // Taking the cart out makes concurrent logins with the same cookie merge it once
+        GuestCart cart = guestCartStore.remove(guestId);
+        if (cart == null || cart.lineCount() == 0) {
+            cookieUtil.deleteGuestCartCookie(httpResponse);
+            return;
+        }
+
+        Map<Long, Integer> lines = cart.toMap();
+        try {
+            mergeTransaction.executeWithoutResult(status -> cartService.mergeGuestCart(userId, lines));
+        } catch (RuntimeException e) {
+            guestCartStore.restore(guestId, cart);
+            log.warn("Failed to merge guest cart into cart of user {}, keeping it: {}", userId, e.getMessage());
+            return;
+        }
+        cookieUtil.deleteGuestCartCookie(httpResponse);
+        log.info("Merged {} guest cart line(s) into cart of user {}", lines.size(), userId);
+    }
+
+    private GuestCart findCart(HttpServletRequest httpRequest) {
+        return cookieUtil.getGuestCartIdFromCookie(httpRequest)
+                .map(guestCartStore::get)
+                .orElse(null);
+    }
+
+    private GuestCart requireCart(HttpServletRequest httpRequest) {
+        GuestCart cart = findCart(httpRequest);
+        if (cart == null) {
+            throw new ResourceNotFoundException("Cart not found");
+        }
+        return cart;
+    }
+
+    private void validateQuantity(GuestCart cart, ProductSize productSize, int current, int newQuantity) {
+        if (newQuantity > MAX_QUANTITY_PER_ITEM) {
+            throw new CartLimitExceededException("Maximum " + MAX_QUANTITY_PER_ITEM +
+                " items allowed per product size.");
+        }
+
+        if (newQuantity > productSize.getStock()) {
+            throw new InsufficientStockException("Only " + productSize.getStock() +
+                " items available in stock for size " + productSize.getSize() + ".");
+        }
+
+        if (cart.totalQuantity() - current + newQuantity > MAX_CART_ITEMS) {
+            throw new CartLimitExceededException("Maximum " + MAX_CART_ITEMS + " total items allowed in cart.");
+        }
+    }
+
+    /**
+     * Renders the guest cart with current product data (one query for all lines).
+     * Guest lines have no id; clients address them by sizeId.
+     */
+    private CartResponse toResponse(GuestCart cart) {
+        if (cart == null || cart.lineCount() == 0) {
+            return CartResponse.empty(null);
+        }
+
+        Map<Long, Integer> lines = cart.toMap();
+        Map<Long, ProductSize> sizes = productSizeRepository.findAllByIdWithProduct(lines.keySet())
+                .stream()
+                .collect(Collectors.toMap(ProductSize::getId, Function.identity()));
+
+        List<CartResponse.CartItemResponse> items = new ArrayList<>(lines.size());
+
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            ProductSize productSize = sizes.get(line.getKey());
+            if (productSize == null) {
+                continue; // Size removed from catalog since it was added
+            }
+
+            Product product = productSize.getProduct();
+            double price = productSize.getPriceOverride() != null ?
+                productSize.getPriceOverride() : product.getPrice();
+            int quantity = line.getValue();
+
+            items.add(CartResponse.CartItemResponse.builder()
+                    .productId(product.getId())
+                    .productName(product.getName())
+                    .productSlug(product.getSlug())
+                    .productImage(product.getImage())
+                    .sizeId(productSize.getId())
+                    .sizeName(productSize.getSize())
+                    .quantity(quantity)
+                    .price(price)
+                    .total(price * quantity)
+                    .availableStock(productSize.getStock())
+                    .currentPrice(price)
+                    .priceChanged(false) // guest lines are always priced live
+                    .outOfStock(quantity > productSize.getStock())
+                    .build());
+        }
+
+        return CartResponse.empty(null).withItems(items, 0L);
+    }
+}
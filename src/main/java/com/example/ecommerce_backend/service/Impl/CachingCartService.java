@@ -0,0 +1,220 @@
+package com.example.ecommerce_backend.service.Impl;
+
+import com.example.ecommerce_backend.cache.CartStore;
+import com.example.ecommerce_backend.dto.request.AddToCartRequest;
+import com.example.ecommerce_backend.dto.request.CartBatchRequest;
+import com.example.ecommerce_backend.dto.request.UpdateCartItemRequest;
+import com.example.ecommerce_backend.dto.response.CartResponse;
+import com.example.ecommerce_backend.exception.CartConflictException;
+import com.example.ecommerce_backend.exception.CartLimitExceededException;
+import com.example.ecommerce_backend.exception.InsufficientStockException;
+import com.example.ecommerce_backend.service.CartRevalidationService;
+import com.example.ecommerce_backend.service.CartService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static com.example.ecommerce_backend.service.Impl.CartServiceImpl.MAX_CART_ITEMS;
+import static com.example.ecommerce_backend.service.Impl.CartServiceImpl.MAX_QUANTITY_PER_ITEM;
+
+/**
+ * Cart service front that serves reads from {@link CartStore} and, in
+ * write-behind mode, applies quantity changes on cached lines in memory.
+ * Everything else is flushed and delegated to {@link CartServiceImpl}.
+ *
+ * Delegated mutations that lose an optimistic-lock race (Cart @Version) or
+ * collide on the cart_items unique constraint are re-read and re-applied
+ * a bounded number of times.
+ */
+@Slf4j
+@Service
+@Primary
+public class CachingCartService implements CartService {
+
+    private final CartServiceImpl delegate;
+    private final CartStore cartStore;
+    private final CartRevalidationService cartRevalidationService;
+    private final int maxRetries;
+    private final Counter conflictCounter;
+    private final Counter retryCounter;
+    private final Counter exhaustedCounter;
+
+    public CachingCartService(
+            CartServiceImpl delegate,
+            CartStore cartStore,
+            CartRevalidationService cartRevalidationService,
+            MeterRegistry meterRegistry,
+            @Value("${application.cart.concurrency.max-retries:3}") int maxRetries
+    ) {
+        this.delegate = delegate;
+        this.cartStore = cartStore;
+        this.cartRevalidationService = cartRevalidationService;
+        this.maxRetries = maxRetries;
+        this.conflictCounter = Counter.builder("cart.concurrency.conflicts")
+                .description("Concurrent cart updates detected (version or unique-key conflict)")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("cart.concurrency.retries")
+                .description("Cart mutations re-applied after a conflict")
+                .register(meterRegistry);
+        this.exhaustedCounter = Counter.builder("cart.concurrency.exhausted")
+                .description("Cart mutations that still conflicted after all retries")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public CartResponse getCart(Long userId) {
+        CartResponse cached = cartStore.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = cartStore.generation(userId);
+        CartResponse cart = delegate.getCart(userId);
+        cartStore.putIfAbsent(userId, cart, generation);
+        return cart;
+    }
+
+    @Override
+    public CartResponse revalidateCart(Long userId) {
+        CartResponse cached = cartStore.get(userId);
+        if (cached == null) {
+            return getCart(userId);
+        }
+
+        CartResponse revalidated = cartRevalidationService.revalidate(cached);
+        // Keep whatever a concurrent mutation cached in the meantime (snapshots
+        // are immutable, and write-behind changes keep the persisted version)
+        cartStore.refresh(userId, latest -> latest == cached ? revalidated : latest);
+        return revalidated;
+    }
+
+    @Override
+    public CartResponse addToCart(Long userId, AddToCartRequest request) {
+        // Existing line: only the quantity changes
+        CartResponse cart = cartStore.updateQuantity(
+                userId,
+                item -> item.getSizeId().equals(request.getProductSizeId())
+                        && item.getProductId().equals(request.getProductId()),
+                (current, item) -> {
+                    int newQuantity = item.getQuantity() + request.getQuantity();
+                    validateQuantity(current, item, newQuantity);
+                    return newQuantity;
+                }
+        );
+        if (cart != null) {
+            return cart;
+        }
+
+        cartStore.flush(userId);
+        cart = withRetry(() -> delegate.addToCart(userId, request));
+        cartStore.put(userId, cart);
+        return cart;
+    }
+
+    @Override
+    public CartResponse updateCartItem(Long userId, Long cartItemId, UpdateCartItemRequest request) {
+        CartResponse cart = cartStore.updateQuantity(
+                userId,
+                item -> item.getId().equals(cartItemId),
+                (current, item) -> {
+                    validateQuantity(current, item, request.getQuantity());
+                    return request.getQuantity();
+                }
+        );
+        if (cart != null) {
+            return cart;
+        }
+
+        cartStore.flush(userId);
+        cart = withRetry(() -> delegate.updateCartItem(userId, cartItemId, request));
+        cartStore.put(userId, cart);
+        return cart;
+    }
+
+    @Override
+    public CartResponse removeCartItem(Long userId, Long cartItemId) {
+        cartStore.flush(userId);
+        CartResponse cart = withRetry(() -> delegate.removeCartItem(userId, cartItemId));
+        cartStore.put(userId, cart);
+        return cart;
+    }
+
+    @Override
+    public CartResponse applyBatch(Long userId, CartBatchRequest request) {
+        cartStore.flush(userId);
+        CartResponse cart = withRetry(() -> delegate.applyBatch(userId, request));
+        cartStore.put(userId, cart);
+        return cart;
+    }
+
+    @Override
+    public void clearCart(Long userId) {
+        // May run inside the caller's transaction (order checkout), so drop
+        // the snapshot once it commits rather than caching state that could
+        // still roll back
+        cartStore.flush(userId);
+        delegate.clearCart(userId);
+        cartStore.invalidate(userId);
+    }
+
+    @Override
+    public CartResponse mergeGuestCart(Long userId, Map<Long, Integer> guestQuantities) {
+        // Runs inside the merge transaction; evicted after commit, cached on the next read
+        cartStore.flush(userId);
+        CartResponse cart = delegate.mergeGuestCart(userId, guestQuantities);
+        cartStore.invalidate(userId);
+        return cart;
+    }
+
+    /**
+     * Re-runs a delegated mutation when it loses a race with another request
+     * for the same cart. Each attempt is a fresh transaction that re-reads the
+     * cart, so the mutation is applied on top of the winner's changes. Calls
+     * that join a caller's transaction are not retried (it is rollback-only).
+     */
+    private <T> T withRetry(Supplier<T> mutation) {
+        boolean retryable = !TransactionSynchronizationManager.isActualTransactionActive();
+        int attempt = 0;
+        while (true) {
+            try {
+                return mutation.get();
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                conflictCounter.increment();
+                if (!retryable || attempt >= maxRetries) {
+                    exhaustedCounter.increment();
+                    log.warn("Cart update conflict not resolved after {} attempt(s): {}", attempt + 1, e.getMessage());
+                    throw new CartConflictException("Cart was modified concurrently. Please try again.");
+                }
+                attempt++;
+                retryCounter.increment();
+                log.debug("Retrying cart update after conflict (attempt {})", attempt);
+            }
+        }
+    }
+
+    private void validateQuantity(CartResponse cart, CartResponse.CartItemResponse item, int newQuantity) {
+        if (newQuantity > MAX_QUANTITY_PER_ITEM) {
+            throw new CartLimitExceededException("Maximum " + MAX_QUANTITY_PER_ITEM +
+                " items allowed per product size. You currently have " +
+                item.getQuantity() + " in your cart.");
+        }
+
+        if (newQuantity > item.getAvailableStock()) {
+            throw new InsufficientStockException("Only " + item.getAvailableStock() +
+                " items available in stock for size " + item.getSizeName() + ".");
+        }
+
+        if (cart.getTotalItems() - item.getQuantity() + newQuantity > MAX_CART_ITEMS) {
+            throw new CartLimitExceededException("Maximum " + MAX_CART_ITEMS + " total items allowed in cart.");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.ecommerce_backend.service.Impl;
 
 import com.example.ecommerce_backend.dto.request.AddToCartRequest;
+import com.example.ecommerce_backend.dto.request.CartBatchRequest;
 import com.example.ecommerce_backend.dto.request.UpdateCartItemRequest;
 import com.example.ecommerce_backend.dto.response.CartResponse;
 import com.example.ecommerce_backend.entity.Cart;
@@ -12,51 +13,58 @@ import com.example.ecommerce_backend.exception.InsufficientStockException;
 import com.example.ecommerce_backend.exception.ResourceNotFoundException;
 import com.example.ecommerce_backend.exception.BadRequestException;
 import com.example.ecommerce_backend.repository.CartRepository;
-import com.example.ecommerce_backend.repository.ProductRepository;
 import com.example.ecommerce_backend.repository.ProductSizeRepository;
 import com.example.ecommerce_backend.service.CartService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class CartServiceImpl implements CartService {
 
     private final CartRepository cartRepository;
-    private final ProductRepository productRepository;
     private final ProductSizeRepository productSizeRepository;
 
-    // Cart limits configuration
-    private static final int MAX_CART_ITEMS = 50;
-    private static final int MAX_UNIQUE_ITEMS = 20;
-    private static final int MAX_QUANTITY_PER_ITEM = 10;
+    // Cart limits configuration (shared with CachingCartService and GuestCartService)
+    public static final int MAX_CART_ITEMS = 50;
+    public static final int MAX_UNIQUE_ITEMS = 20;
+    public static final int MAX_QUANTITY_PER_ITEM = 10;
 
     @Override
     @Transactional(readOnly = true)
     public CartResponse getCart(Long userId) {
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseGet(() -> createNewCart(userId));
-        return CartResponse.fromEntity(cart);
+        // Carts are virtual until the first add: reading never writes
+        return cartRepository.findByUserIdWithItems(userId)
+                .map(CartResponse::fromEntity)
+                .orElseGet(() -> CartResponse.empty(userId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CartResponse revalidateCart(Long userId) {
+        // Sizes are fetched with the cart, so a fresh load is already current
+        return getCart(userId);
     }
 
     @Override
     @Transactional
     public CartResponse addToCart(Long userId, AddToCartRequest request) {
-        // Get or create cart
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseGet(() -> createNewCart(userId));
-
-        // Validate product exists
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-
-        // Validate product size exists
-        ProductSize productSize = productSizeRepository.findById(request.getProductSizeId())
+        // Validate product size exists (loaded together with its product)
+        ProductSize productSize = productSizeRepository.findByIdWithProduct(request.getProductSizeId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product size not found"));
+        Product product = productSize.getProduct();
 
         // Verify product size belongs to product
-        if (!productSize.getProduct().getId().equals(product.getId())) {
+        if (!product.getId().equals(request.getProductId())) {
             throw new BadRequestException("Product size does not belong to this product");
         }
 
@@ -65,11 +73,12 @@ public class CartServiceImpl implements CartService {
             throw new InsufficientStockException("Size " + productSize.getSize() + " is out of stock");
         }
 
+        // Get or create cart
+        Cart cart = cartRepository.findByUserIdWithItems(userId)
+                .orElseGet(() -> createNewCart(userId));
+
         // Check if item already exists in cart
-        CartItem existingItem = cart.getItems().stream()
-                .filter(item -> item.getProductSize().getId().equals(productSize.getId()))
-                .findFirst()
-                .orElse(null);
+        CartItem existingItem = cart.findItemBySizeId(productSize.getId());
 
         if (existingItem != null) {
             // Update existing item
@@ -95,7 +104,7 @@ public class CartServiceImpl implements CartService {
                 throw new CartLimitExceededException("Maximum " + MAX_CART_ITEMS + " total items allowed in cart.");
             }
 
-            existingItem.setQuantity(newQuantity);
+            cart.changeQuantity(existingItem, newQuantity);
         } else {
             // Add new item
             
@@ -134,14 +143,15 @@ public class CartServiceImpl implements CartService {
             cart.addItem(newItem);
         }
 
-        Cart savedCart = cartRepository.save(cart);
+        // Flush so @Version is bumped before the response (and cached snapshot) reads it
+        Cart savedCart = cartRepository.saveAndFlush(cart);
         return CartResponse.fromEntity(savedCart);
     }
 
     @Override
     @Transactional
     public CartResponse updateCartItem(Long userId, Long cartItemId, UpdateCartItemRequest request) {
-        Cart cart = cartRepository.findByUserId(userId)
+        Cart cart = cartRepository.findByUserIdWithItems(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
 
         CartItem cartItem = cart.getItems().stream()
@@ -169,24 +179,22 @@ public class CartServiceImpl implements CartService {
         }
 
         // Validate total cart items
-        int otherItemsQuantity = cart.getItems().stream()
-                .filter(item -> !item.getId().equals(cartItemId))
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+        int otherItemsQuantity = cart.getTotalItems() - cartItem.getQuantity();
 
         if (otherItemsQuantity + newQuantity > MAX_CART_ITEMS) {
             throw new CartLimitExceededException("Maximum " + MAX_CART_ITEMS + " total items allowed in cart.");
         }
 
-        cartItem.setQuantity(newQuantity);
-        Cart savedCart = cartRepository.save(cart);
+        cart.changeQuantity(cartItem, newQuantity);
+        // Flush so @Version is bumped before the response (and cached snapshot) reads it
+        Cart savedCart = cartRepository.saveAndFlush(cart);
         return CartResponse.fromEntity(savedCart);
     }
 
     @Override
     @Transactional
     public CartResponse removeCartItem(Long userId, Long cartItemId) {
-        Cart cart = cartRepository.findByUserId(userId)
+        Cart cart = cartRepository.findByUserIdWithItems(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
 
         CartItem cartItem = cart.getItems().stream()
@@ -195,24 +203,188 @@ public class CartServiceImpl implements CartService {
                 .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
 
         cart.removeItem(cartItem);
-        Cart savedCart = cartRepository.save(cart);
+        // Flush so @Version is bumped before the response (and cached snapshot) reads it
+        Cart savedCart = cartRepository.saveAndFlush(cart);
         return CartResponse.fromEntity(savedCart);
     }
 
     @Override
     @Transactional
     public void clearCart(Long userId) {
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
+        // No row means the cart is already (virtually) empty
+        cartRepository.findByUserIdWithItems(userId).ifPresent(cart -> {
+            cart.clearItems();
+            cartRepository.save(cart);
+        });
+    }
+
+    @Override
+    @Transactional
+    public CartResponse applyBatch(Long userId, CartBatchRequest request) {
+        List<CartBatchRequest.Operation> operations = request.getOperations();
+
+        // Load every size referenced by ADD operations with a single query
+        Set<Long> sizeIds = new HashSet<>();
+        for (CartBatchRequest.Operation operation : operations) {
+            if (operation.getType() == CartBatchRequest.OperationType.ADD) {
+                if (operation.getProductId() == null || operation.getProductSizeId() == null
+                        || operation.getQuantity() == null) {
+                    throw new BadRequestException("ADD requires productId, productSizeId and quantity");
+                }
+                sizeIds.add(operation.getProductSizeId());
+            }
+        }
+        Map<Long, ProductSize> sizes = sizeIds.isEmpty()
+                ? Map.of()
+                : productSizeRepository.findAllByIdWithProduct(sizeIds).stream()
+                        .collect(Collectors.toMap(ProductSize::getId, Function.identity()));
+
+        Cart cart = sizeIds.isEmpty()
+                ? cartRepository.findByUserIdWithItems(userId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Cart not found"))
+                : cartRepository.findByUserIdWithItems(userId)
+                        .orElseGet(() -> createNewCart(userId));
+
+        // Apply in order; limits are checked once against the final state
+        Set<CartItem> touched = new HashSet<>();
+        for (CartBatchRequest.Operation operation : operations) {
+            switch (operation.getType()) {
+                case ADD -> {
+                    ProductSize productSize = sizes.get(operation.getProductSizeId());
+                    if (productSize == null) {
+                        throw new ResourceNotFoundException("Product size not found");
+                    }
+                    Product product = productSize.getProduct();
+                    if (!product.getId().equals(operation.getProductId())) {
+                        throw new BadRequestException("Product size does not belong to this product");
+                    }
+
+                    CartItem existingItem = cart.findItemBySizeId(productSize.getId());
+                    if (existingItem != null) {
+                        cart.changeQuantity(existingItem, existingItem.getQuantity() + operation.getQuantity());
+                        touched.add(existingItem);
+                    } else {
+                        CartItem newItem = CartItem.builder()
+                                .product(product)
+                                .productSize(productSize)
+                                .quantity(operation.getQuantity())
+                                .price(productSize.getPriceOverride() != null ?
+                                    productSize.getPriceOverride() : product.getPrice())
+                                .build();
+                        cart.addItem(newItem);
+                        touched.add(newItem);
+                    }
+                }
+                case UPDATE -> {
+                    if (operation.getQuantity() == null) {
+                        throw new BadRequestException("UPDATE requires quantity");
+                    }
+                    CartItem cartItem = findItem(cart, operation.getCartItemId());
+                    cart.changeQuantity(cartItem, operation.getQuantity());
+                    touched.add(cartItem);
+                }
+                case REMOVE -> {
+                    CartItem cartItem = findItem(cart, operation.getCartItemId());
+                    cart.removeItem(cartItem);
+                    touched.remove(cartItem);
+                }
+            }
+        }
+
+        if (cart.getUniqueItems() > MAX_UNIQUE_ITEMS) {
+            throw new CartLimitExceededException("Maximum " + MAX_UNIQUE_ITEMS + " different items allowed in cart.");
+        }
+
+        if (cart.getTotalItems() > MAX_CART_ITEMS) {
+            throw new CartLimitExceededException("Maximum " + MAX_CART_ITEMS + " total items allowed in cart.");
+        }
+
+        for (CartItem item : touched) {
+            ProductSize productSize = item.getProductSize();
+            if (item.getQuantity() > MAX_QUANTITY_PER_ITEM) {
+                throw new CartLimitExceededException("Maximum " + MAX_QUANTITY_PER_ITEM +
+                    " items allowed per product size.");
+            }
+            if (item.getQuantity() > productSize.getStock()) {
+                throw new InsufficientStockException("Only " + productSize.getStock() +
+                    " items available in stock for size " + productSize.getSize() + ".");
+            }
+        }
+
+        // Flush so @Version is bumped before the response (and cached snapshot) reads it
+        Cart savedCart = cartRepository.saveAndFlush(cart);
+        return CartResponse.fromEntity(savedCart);
+    }
+
+    @Override
+    @Transactional
+    public CartResponse mergeGuestCart(Long userId, Map<Long, Integer> guestQuantities) {
+        if (guestQuantities.isEmpty()) {
+            return getCart(userId);
+        }
+
+        // Validate every guest line with a single query
+        Map<Long, ProductSize> sizes = productSizeRepository.findAllByIdWithProduct(guestQuantities.keySet())
+                .stream()
+                .collect(Collectors.toMap(ProductSize::getId, Function.identity()));
+
+        Cart cart = cartRepository.findByUserIdWithItems(userId)
+                .orElseGet(() -> createNewCart(userId));
+
+        for (Map.Entry<Long, Integer> line : guestQuantities.entrySet()) {
+            ProductSize productSize = sizes.get(line.getKey());
+            if (productSize == null || productSize.getStock() <= 0) {
+                continue;
+            }
+
+            CartItem existingItem = cart.findItemBySizeId(productSize.getId());
+            if (existingItem == null && cart.getUniqueItems() >= MAX_UNIQUE_ITEMS) {
+                continue;
+            }
+
+            int current = existingItem != null ? existingItem.getQuantity() : 0;
+            int target = Math.min(current + line.getValue(), Math.min(MAX_QUANTITY_PER_ITEM, productSize.getStock()));
+            target = Math.min(target, current + MAX_CART_ITEMS - cart.getTotalItems());
+            if (target <= current) {
+                continue;
+            }
+
+            if (existingItem != null) {
+                cart.changeQuantity(existingItem, target);
+            } else {
+                Product product = productSize.getProduct();
+                cart.addItem(CartItem.builder()
+                        .product(product)
+                        .productSize(productSize)
+                        .quantity(target)
+                        .price(productSize.getPriceOverride() != null ?
+                            productSize.getPriceOverride() : product.getPrice())
+                        .build());
+            }
+        }
 
-        cart.clearItems();
-        cartRepository.save(cart);
+        // Flush so @Version is bumped before the response (and cached snapshot) reads it
+        Cart savedCart = cartRepository.saveAndFlush(cart);
+        return CartResponse.fromEntity(savedCart);
     }
 
+    private CartItem findItem(Cart cart, Long cartItemId) {
+        if (cartItemId == null) {
+            throw new BadRequestException("cartItemId is required");
+        }
+        return cart.getItems().stream()
+                .filter(item -> cartItemId.equals(item.getId()))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
+    }
+
+    /**
+     * Lazily creates the cart row on first add. Uses an upsert so two
+     * concurrent first adds cannot violate the unique user_id constraint.
+     */
     private Cart createNewCart(Long userId) {
-        Cart cart = Cart.builder()
-                .userId(userId)
-                .build();
-        return cartRepository.save(cart);
+        cartRepository.insertIfAbsent(userId, LocalDateTime.now());
+        return cartRepository.findByUserIdWithItems(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
     }
 }
\ No newline at end of file
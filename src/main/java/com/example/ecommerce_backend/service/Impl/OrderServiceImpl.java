@@ -10,6 +10,7 @@ import com.example.ecommerce_backend.exception.ResourceNotFoundException;
 import com.example.ecommerce_backend.repository.OrderRepository;
 import com.example.ecommerce_backend.repository.ProductRepository;
 import com.example.ecommerce_backend.repository.ProductSizeRepository;
+import com.example.ecommerce_backend.service.CartRevalidationService;
 import com.example.ecommerce_backend.service.CartService;
 import com.example.ecommerce_backend.service.OrderService;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +23,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -32,6 +35,7 @@ public class OrderServiceImpl implements OrderService {
     private final ProductRepository productRepository;
     private final ProductSizeRepository productSizeRepository;
     private final CartService cartService;
+    private final CartRevalidationService cartRevalidationService;
 
     @Override
     @Transactional
@@ -60,6 +64,7 @@ public class OrderServiceImpl implements OrderService {
                 .build();
 
         // Add items and reduce stock
+        Set<Long> stockChanged = new HashSet<>();
         for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
             // Validate product
             Product product = productRepository.findById(itemRequest.getProductId())
@@ -87,6 +92,7 @@ public class OrderServiceImpl implements OrderService {
             // Reduce stock
             productSize.setStock(productSize.getStock() - itemRequest.getQuantity());
             productSizeRepository.save(productSize);
+            stockChanged.add(productSize.getId());
 
             // Create order item
             OrderItem orderItem = OrderItem.builder()
@@ -101,6 +107,8 @@ public class OrderServiceImpl implements OrderService {
 
         // Save order
         Order savedOrder = orderRepository.save(order);
+        // Cached carts holding these sizes show stale stock until revalidated
+        cartRevalidationService.markStockChanged(stockChanged);
 
         // Clear user's cart
         try {
@@ -185,7 +193,8 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public OrderResponse cancelOrder(Long orderId, Long userId) {
-        Order order = orderRepository.findById(orderId)
+        // Locked so a concurrent cancel (or the stale order job) cannot restore the stock twice
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
         // Check if order belongs to user
@@ -200,11 +209,14 @@ public class OrderServiceImpl implements OrderService {
         }
 
         // Restore stock
+        Set<Long> stockChanged = new HashSet<>();
         for (OrderItem item : order.getItems()) {
             ProductSize productSize = item.getProductSize();
             productSize.setStock(productSize.getStock() + item.getQuantity());
             productSizeRepository.save(productSize);
+            stockChanged.add(productSize.getId());
         }
+        cartRevalidationService.markStockChanged(stockChanged);
 
         order.setStatus(OrderStatus.CANCELLED);
         Order cancelledOrder = orderRepository.save(order);
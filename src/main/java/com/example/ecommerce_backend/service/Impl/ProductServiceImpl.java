@@ -9,6 +9,7 @@ import com.example.ecommerce_backend.entity.ProductSize;
 import com.example.ecommerce_backend.repository.CategoryRepository;
 import com.example.ecommerce_backend.repository.ProductRepository;
 import com.example.ecommerce_backend.repository.ProductSizeRepository;
+import com.example.ecommerce_backend.service.CartRevalidationService;
 import com.example.ecommerce_backend.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -27,6 +28,7 @@ public class ProductServiceImpl implements ProductService {
     private final ProductRepository productRepository;
     private final ProductSizeRepository productSizeRepository;
     private final CategoryRepository categoryRepository;
+    private final CartRevalidationService cartRevalidationService;
 
     @Override
     @Transactional
@@ -101,6 +103,7 @@ public class ProductServiceImpl implements ProductService {
         updateProductSizes(product, request.getSizes());
 
         Product updated = productRepository.save(product);
+        cartRevalidationService.markCatalogChanged();
         return ProductResponse.fromEntity(updated);
     }
 
@@ -161,6 +164,7 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product updated = productRepository.save(product);
+        cartRevalidationService.markCatalogChanged();
         return ProductResponse.fromEntity(updated);
     }
 
@@ -239,6 +243,7 @@ public class ProductServiceImpl implements ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         productRepository.delete(product);
+        cartRevalidationService.markCatalogChanged();
     }
 
     @Override
@@ -0,0 +1,72 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.repository.JobLeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Database-backed leases that keep cluster-wide jobs on a single node.
+ *
+ * Each lease is a row in job_leases. A node holds it until it expires or is
+ * released; long runs renew it between chunks. If the holder dies the lease
+ * simply expires and another node takes over on its next run.
+ */
+@Slf4j
+@Service
+public class JobLeaseService {
+
+    private final JobLeaseRepository jobLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String owner;
+
+    public JobLeaseService(JobLeaseRepository jobLeaseRepository, PlatformTransactionManager transactionManager) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Always commit on its own, even when called from a transactional method
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.owner = hostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Acquires or renews the lease for the given duration.
+     *
+     * @return true if this node holds the lease
+     */
+    public boolean tryAcquire(String name, Duration duration) {
+        try {
+            double ttlSeconds = duration.toMillis() / 1000.0;
+            Integer acquired = transactionTemplate.execute(status ->
+                    jobLeaseRepository.tryAcquire(name, owner, ttlSeconds));
+            return acquired != null && acquired > 0;
+        } catch (RuntimeException e) {
+            log.warn("Could not acquire lease {}: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    public void release(String name) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jobLeaseRepository.release(name, owner));
+        } catch (RuntimeException e) {
+            // The lease expires on its own
+            log.warn("Could not release lease {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
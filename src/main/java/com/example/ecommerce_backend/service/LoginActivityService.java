@@ -0,0 +1,97 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for login bookkeeping (currently lastLogin).
+ *
+ * Logins only record into an in-memory map, coalesced per user, and a
+ * scheduled flush writes them as batched {@code UPDATE ... WHERE id IN}.
+ * Each batch uses its latest timestamp, so a stored lastLogin can be ahead
+ * by at most one flush interval; GREATEST keeps a slower node from moving
+ * it backwards. Pending entries are lost if the node dies before a flush.
+ */
+@Slf4j
+@Service
+public class LoginActivityService {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, LocalDateTime> pendingLastLogin = new ConcurrentHashMap<>();
+
+    private final Counter flushedCounter;
+
+    @Value("${application.user.login-activity.batch-size:500}")
+    private int batchSize;
+
+    public LoginActivityService(
+            UserRepository userRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushedCounter = Counter.builder("user.login_activity.flushed")
+                .description("Users whose lastLogin was written by the write-behind flush")
+                .register(meterRegistry);
+        Gauge.builder("user.login_activity.pending", pendingLastLogin, Map::size)
+                .description("Users with a login not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    public void recordLogin(Long userId, LocalDateTime at) {
+        pendingLastLogin.merge(userId, at, (previous, next) -> next.isAfter(previous) ? next : previous);
+    }
+
+    @Scheduled(fixedDelayString = "${application.user.login-activity.flush-interval-ms:5000}")
+    public void flush() {
+        if (pendingLastLogin.isEmpty()) {
+            return;
+        }
+
+        // Remove only the value that was read: a login recorded meanwhile
+        // replaces it, stays in the map and waits for the next flush
+        Map<Long, LocalDateTime> drained = new HashMap<>();
+        for (Map.Entry<Long, LocalDateTime> entry : pendingLastLogin.entrySet()) {
+            if (pendingLastLogin.remove(entry.getKey(), entry.getValue())) {
+                drained.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(drained.keySet());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            LocalDateTime latest = batch.stream().map(drained::get).max(LocalDateTime::compareTo).orElseThrow();
+            try {
+                transactionTemplate.executeWithoutResult(status -> userRepository.updateLastLogin(batch, latest));
+                flushedCounter.increment(batch.size());
+            } catch (RuntimeException e) {
+                log.warn("Failed to write lastLogin for {} users, retrying on next flush: {}",
+                        batch.size(), e.getMessage());
+                batch.forEach(id -> recordLogin(id, drained.get(id)));
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+}
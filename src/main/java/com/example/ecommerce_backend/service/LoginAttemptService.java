@@ -0,0 +1,200 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.exception.RateLimitExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Throttles failed password logins per account and per client IP.
+ *
+ * Failures are counted in a sliding window (current and previous fixed
+ * window, weighted by overlap). Once a key reaches its free attempts, every
+ * further failure blocks it for a doubling delay, capped at the lockout
+ * duration. Blocked keys are rejected before any password is hashed.
+ *
+ * State is node-local and held in size-bounded caches; entries that stay
+ * quiet longer than the window plus the lockout are dropped.
+ */
+@Slf4j
+@Service
+public class LoginAttemptService {
+
+    private final Cache<String, Attempts> accounts;
+    private final Cache<String, Attempts> addresses;
+    private final Policy accountPolicy;
+    private final Policy addressPolicy;
+
+    private final Counter failureCounter;
+    private final Counter accountThrottledCounter;
+    private final Counter addressThrottledCounter;
+
+    @Value("${application.security.login-throttle.enabled:true}")
+    private boolean enabled;
+
+    public LoginAttemptService(
+            MeterRegistry meterRegistry,
+            @Value("${application.security.login-throttle.window-seconds:900}") long windowSeconds,
+            @Value("${application.security.login-throttle.base-delay-seconds:1}") long baseDelaySeconds,
+            @Value("${application.security.login-throttle.max-lockout-seconds:900}") long maxLockoutSeconds,
+            @Value("${application.security.login-throttle.account.free-attempts:5}") int accountFreeAttempts,
+            @Value("${application.security.login-throttle.ip.free-attempts:50}") int addressFreeAttempts,
+            @Value("${application.security.login-throttle.max-entries:100000}") long maxEntries
+    ) {
+        long windowMs = windowSeconds * 1000;
+        long baseDelayMs = baseDelaySeconds * 1000;
+        long maxLockoutMs = maxLockoutSeconds * 1000;
+        this.accountPolicy = new Policy(windowMs, accountFreeAttempts, baseDelayMs, maxLockoutMs);
+        this.addressPolicy = new Policy(windowMs, addressFreeAttempts, baseDelayMs, maxLockoutMs);
+
+        Duration idle = Duration.ofMillis(2 * windowMs + maxLockoutMs);
+        this.accounts = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterAccess(idle).build();
+        this.addresses = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterAccess(idle).build();
+
+        this.failureCounter = Counter.builder("auth.login.failures")
+                .description("Failed password logins")
+                .register(meterRegistry);
+        this.accountThrottledCounter = Counter.builder("auth.login.throttled")
+                .tag("scope", "account")
+                .description("Logins rejected before hashing because the account is backing off")
+                .register(meterRegistry);
+        this.addressThrottledCounter = Counter.builder("auth.login.throttled")
+                .tag("scope", "ip")
+                .description("Logins rejected before hashing because the client IP is backing off")
+                .register(meterRegistry);
+        Gauge.builder("auth.login.tracked", accounts, Cache::estimatedSize)
+                .tag("scope", "account")
+                .description("Accounts with recent failed logins")
+                .register(meterRegistry);
+        Gauge.builder("auth.login.tracked", addresses, Cache::estimatedSize)
+                .tag("scope", "ip")
+                .description("Client IPs with recent failed logins")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws RateLimitExceededException if the account or the IP is blocked
+     */
+    public void checkAllowed(String usernameOrEmail, String ip) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        long accountWait = blockedFor(accounts, normalize(usernameOrEmail), now);
+        long addressWait = blockedFor(addresses, ip, now);
+        if (accountWait == 0 && addressWait == 0) {
+            return;
+        }
+
+        (accountWait >= addressWait ? accountThrottledCounter : addressThrottledCounter).increment();
+        long seconds = Math.max(1, (Math.max(accountWait, addressWait) + 999) / 1000);
+        throw new RateLimitExceededException(
+                "Too many failed login attempts. Try again in " + seconds + " seconds.", seconds);
+    }
+
+    public void recordFailure(String usernameOrEmail, String ip) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        failureCounter.increment();
+
+        String account = normalize(usernameOrEmail);
+        if (account != null) {
+            long blocked = accounts.get(account, key -> new Attempts()).fail(now, accountPolicy);
+            if (blocked >= accountPolicy.maxLockoutMs()) {
+                log.warn("Login locked for account {} after repeated failures", account);
+            }
+        }
+        if (ip != null) {
+            addresses.get(ip, key -> new Attempts()).fail(now, addressPolicy);
+        }
+    }
+
+    /**
+     * Clears the account's failures; the IP keeps its count, so one valid
+     * login does not reset a spray across many accounts.
+     */
+    public void recordSuccess(String usernameOrEmail) {
+        if (!enabled) {
+            return;
+        }
+        String account = normalize(usernameOrEmail);
+        if (account != null) {
+            accounts.invalidate(account);
+        }
+    }
+
+    private static long blockedFor(Cache<String, Attempts> cache, String key, long now) {
+        if (key == null) {
+            return 0;
+        }
+        Attempts attempts = cache.getIfPresent(key);
+        return attempts != null ? attempts.blockedFor(now) : 0;
+    }
+
+    private static String normalize(String usernameOrEmail) {
+        if (usernameOrEmail == null) {
+            return null;
+        }
+        String key = usernameOrEmail.trim().toLowerCase(Locale.ROOT);
+        return key.isEmpty() ? null : key;
+    }
+
+    record Policy(long windowMs, int freeAttempts, long baseDelayMs, long maxLockoutMs) {
+    }
+
+    /**
+     * Failure counts of one key. Contention is per key, so a plain monitor is enough.
+     */
+    static final class Attempts {
+
+        private long windowStart;
+        private int current;
+        private int previous;
+        private long blockedUntil;
+
+        synchronized long blockedFor(long now) {
+            return Math.max(0, blockedUntil - now);
+        }
+
+        /**
+         * @return how long the key is now blocked for, in ms
+         */
+        synchronized long fail(long now, Policy policy) {
+            roll(now, policy.windowMs());
+            current++;
+
+            double overlap = 1.0 - (double) (now - windowStart) / policy.windowMs();
+            int failures = (int) Math.ceil(previous * overlap + current);
+            int excess = failures - policy.freeAttempts();
+            if (excess >= 0) {
+                long delay = Math.min(policy.maxLockoutMs(), policy.baseDelayMs() << Math.min(excess, 30));
+                blockedUntil = Math.max(blockedUntil, now + delay);
+            }
+            return blockedFor(now);
+        }
+
+        private void roll(long now, long windowMs) {
+            long elapsed = now - windowStart;
+            if (elapsed >= 2 * windowMs) {
+                previous = 0;
+                current = 0;
+                windowStart = now;
+            } else if (elapsed >= windowMs) {
+                previous = current;
+                current = 0;
+                windowStart += windowMs;
+            }
+        }
+    }
+}
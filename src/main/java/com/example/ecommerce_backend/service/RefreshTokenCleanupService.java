@@ -0,0 +1,148 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * Background job that deletes expired refresh tokens and tokens revoked
+ * long ago.
+ *
+ * Rows are deleted in bounded chunks, each in its own short transaction,
+ * with a pause between chunks to keep WAL and lock pressure low. A DB lease
+ * keeps the job on one node of the cluster at a time.
+ */
+@Slf4j
+@Service
+public class RefreshTokenCleanupService {
+
+    private static final String LEASE_NAME = "refresh-token-cleanup";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JobLeaseService jobLeaseService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter deletedCounter;
+    private final Timer batchTimer;
+
+    @Value("${application.security.token.cleanup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.security.token.cleanup.revoked-retention-days:30}")
+    private long revokedRetentionDays;
+
+    @Value("${application.security.token.cleanup.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${application.security.token.cleanup.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Value("${application.security.token.cleanup.pause-between-batches-ms:100}")
+    private long pauseMs;
+
+    @Value("${application.security.token.cleanup.lease-seconds:300}")
+    private long leaseSeconds;
+
+    public RefreshTokenCleanupService(
+            RefreshTokenRepository refreshTokenRepository,
+            JobLeaseService jobLeaseService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jobLeaseService = jobLeaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deletedCounter = Counter.builder("refresh_tokens.cleanup.deleted")
+                .description("Expired or long-revoked refresh tokens deleted")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("refresh_tokens.cleanup.batch.duration")
+                .description("Time spent deleting one chunk of refresh tokens")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${application.security.token.cleanup.interval-ms:900000}",
+            initialDelayString = "${application.security.token.cleanup.interval-ms:900000}"
+    )
+    public void cleanupExpiredTokens() {
+        if (!enabled || !jobLeaseService.tryAcquire(LEASE_NAME, leaseDuration())) {
+            return;
+        }
+
+        try {
+            long started = System.nanoTime();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime revokedBefore = now.minusDays(revokedRetentionDays);
+
+            int expired = deleteInBatches(() -> refreshTokenRepository.deleteExpiredTokens(now, batchSize));
+            int revoked = deleteInBatches(
+                    () -> refreshTokenRepository.deleteRevokedTokensBefore(revokedBefore, batchSize));
+
+            int total = expired + revoked;
+            if (total > 0) {
+                double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+                log.info("Deleted {} expired and {} revoked refresh tokens in {} s ({} rows/s)",
+                        expired,
+                        revoked,
+                        String.format("%.2f", seconds),
+                        String.format("%.1f", total / Math.max(seconds, 0.001)));
+            }
+        } finally {
+            jobLeaseService.release(LEASE_NAME);
+        }
+    }
+
+    /**
+     * Runs one delete statement per chunk until a chunk comes back short,
+     * the batch budget is spent, or the lease is lost.
+     *
+     * @return rows deleted
+     */
+    private int deleteInBatches(IntSupplier deleteChunk) {
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Timer.Sample sample = Timer.start();
+            Integer deleted = transactionTemplate.execute(status -> deleteChunk.getAsInt());
+            sample.stop(batchTimer);
+
+            int count = deleted != null ? deleted : 0;
+            total += count;
+            deletedCounter.increment(count);
+            if (count < batchSize || !pause() || !jobLeaseService.tryAcquire(LEASE_NAME, leaseDuration())) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private Duration leaseDuration() {
+        return Duration.ofSeconds(leaseSeconds);
+    }
+
+    /**
+     * @return false if the job was interrupted and should stop
+     */
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
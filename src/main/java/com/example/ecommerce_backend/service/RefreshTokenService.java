@@ -1,5 +1,6 @@
 package com.example.ecommerce_backend.service;
 
+import com.example.ecommerce_backend.cache.RefreshTokenFilter;
 import com.example.ecommerce_backend.entity.RefreshToken;
 import com.example.ecommerce_backend.entity.User;
 import com.example.ecommerce_backend.exception.BadRequestException;
@@ -10,7 +11,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +24,7 @@ public class RefreshTokenService {
     
     private final RefreshTokenRepository refreshTokenRepository;
     private final TokenHashUtil tokenHashUtil;
+    private final RefreshTokenFilter refreshTokenFilter;
     
     @Value("${application.security.jwt.refresh-expiration}")
     private long refreshTokenExpiration;
@@ -34,6 +35,12 @@ public class RefreshTokenService {
     @Value("${application.security.token.rotation.enabled:true}")
     private boolean tokenRotationEnabled;
     
+    /**
+     * Outcome of a rotation: the new RAW token and the user it was issued to.
+     */
+    public record Rotation(String rawToken, User user) {
+    }
+    
     @Transactional
     @NonNull
     public String createRefreshToken(@NonNull User user, @NonNull HttpServletRequest request) {
@@ -43,17 +50,9 @@ public class RefreshTokenService {
         // Hash the token before storing
         String tokenHash = tokenHashUtil.hashToken(rawToken);
         
-        // Check active token limit
-        enforceTokenLimit(user);
-         
-        // Create refresh token entity (with hash, not raw token)
-        RefreshToken refreshToken = RefreshToken.builder()
-                .tokenHash(tokenHash)
-                .user(user)
-                .expiresAt(LocalDateTime.now().plusSeconds(refreshTokenExpiration / 1000))
-                .build();
+        // Store the hash (not the raw token) and apply the active token limit
+        insertToken(user, tokenHash, LocalDateTime.now());
         
-        refreshTokenRepository.save(refreshToken); 
         // Return the RAW token (only time it exists unhashed)
         return rawToken;
     }
@@ -63,9 +62,16 @@ public class RefreshTokenService {
         // Hash the provided token
         String tokenHash = tokenHashUtil.hashToken(rawToken);
         
-        // Find token by hash
-        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(tokenHash)
+        // Unknown tokens (e.g. garbage cookies) are rejected without a DB round trip
+        if (!refreshTokenFilter.mightContain(tokenHash)) {
+            log.debug("Rejected unknown refresh token without lookup");
+            throw new BadRequestException("Invalid refresh token");
+        }
+        
+        // Find token by hash (with its user, which every caller needs)
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHashWithUser(tokenHash)
                 .orElseThrow(() -> {
+                    refreshTokenFilter.recordFalsePositive();
                     log.warn("Attempted to use invalid/unknown refresh token");
                     return new BadRequestException("Invalid refresh token");
                 });
@@ -94,32 +100,49 @@ public class RefreshTokenService {
     @Transactional
     @NonNull
     public String rotateRefreshToken(@NonNull String oldRawToken, @NonNull HttpServletRequest request) {
-        if (!tokenRotationEnabled) {
-            // If rotation disabled, just verify and return same token
-            verifyRefreshToken(oldRawToken);
-            return oldRawToken;
-        }
-        
+        return rotate(oldRawToken, request).rawToken();
+    }
+    
+    /**
+     * Verifies the old token and replaces it with a new one using a fixed
+     * number of statements: lookup, guarded revoke of the old token, insert,
+     * and one set-based update enforcing the active token limit.
+     */
+    @Transactional
+    @NonNull
+    public Rotation rotate(@NonNull String oldRawToken, @NonNull HttpServletRequest request) {
         // Verify old token
         RefreshToken oldRefreshToken = verifyRefreshToken(oldRawToken);
+        User user = oldRefreshToken.getUser();
+        
+        if (!tokenRotationEnabled) {
+            // If rotation disabled, keep using the same token
+            return new Rotation(oldRawToken, user);
+        }
         
-        // Create new refresh token
-        String newRawToken = createRefreshToken(oldRefreshToken.getUser(), request);
+        String newRawToken = tokenHashUtil.generateSecureToken();
         String newTokenHash = tokenHashUtil.hashToken(newRawToken);
+        LocalDateTime now = LocalDateTime.now();
         
-        // Mark old token as replaced
-        oldRefreshToken.setReplacedByTokenHash(newTokenHash);
-        oldRefreshToken.revoke();
-        refreshTokenRepository.save(oldRefreshToken);
+        // Mark old token as replaced, unless a concurrent request already did
+        if (refreshTokenRepository.revokeIfActive(oldRefreshToken.getId(), newTokenHash, now) == 0) {
+            log.warn("Refresh token for user {} was rotated concurrently", user.getUsername());
+            throw new BadRequestException("Refresh token has been revoked");
+        }
         
-        log.info("Rotated refresh token for user: {}", oldRefreshToken.getUser().getUsername());
+        insertToken(user, newTokenHash, now);
         
-        return newRawToken;
+        log.info("Rotated refresh token for user: {}", user.getUsername());
+        
+        return new Rotation(newRawToken, user);
     }
     
     @Transactional
     public void revokeRefreshToken(@NonNull String rawToken) {
         String tokenHash = tokenHashUtil.hashToken(rawToken);
+        if (!refreshTokenFilter.mightContain(tokenHash)) {
+            return;
+        }
         
         refreshTokenRepository.findByTokenHash(tokenHash).ifPresent(refreshToken -> {
             refreshToken.revoke();
@@ -139,35 +162,22 @@ public class RefreshTokenService {
         return refreshTokenRepository.findValidTokensByUser(user, LocalDateTime.now());
     }
     
-    private void enforceTokenLimit(@NonNull User user) {
-        long activeTokenCount = refreshTokenRepository.countActiveTokensByUser(user, LocalDateTime.now());
-        
-        if (activeTokenCount >= maxActiveTokens) {
-            // Revoke oldest tokens
-            List<RefreshToken> tokens = refreshTokenRepository.findValidTokensByUser(user, LocalDateTime.now());
-            tokens.stream()
-                    .sorted((t1, t2) -> t1.getCreatedAt().compareTo(t2.getCreatedAt()))
-                    .limit(activeTokenCount - maxActiveTokens + 1)
-                    .forEach(token -> {
-                        token.revoke();
-                        refreshTokenRepository.save(token);
-                        log.info("Auto-revoked old token for user: {} (exceeded limit)", 
-                                user.getUsername());
-                    });
-        }
-    }
-    
-    @Scheduled(cron = "0 0 2 * * ?")
-    @Transactional
-    public void cleanupExpiredTokens() {
-        log.info("Starting cleanup of expired refresh tokens");
-        
-        refreshTokenRepository.deleteExpiredTokens(LocalDateTime.now());
-        
-        // Also cleanup old revoked tokens (older than 30 days)
-        refreshTokenRepository.deleteRevokedTokensBefore(LocalDateTime.now().minusDays(30));
+    /**
+     * Inserts a token and revokes the user's oldest active tokens beyond
+     * the limit in a single set-based update.
+     */
+    private void insertToken(@NonNull User user, @NonNull String tokenHash, @NonNull LocalDateTime now) {
+        RefreshToken refreshToken = RefreshToken.builder()
+                .tokenHash(tokenHash)
+                .user(user)
+                .expiresAt(now.plusSeconds(refreshTokenExpiration / 1000))
+                .build();
+        refreshTokenRepository.save(refreshToken);
+        refreshTokenFilter.add(tokenHash);
         
-        log.info("Completed cleanup of expired refresh tokens");
+        int revoked = refreshTokenRepository.revokeAllButNewest(user.getId(), maxActiveTokens, now);
+        if (revoked > 0) {
+            log.info("Auto-revoked {} old token(s) for user: {} (exceeded limit)", revoked, user.getUsername());
+        }
     }
-
 }
\ No newline at end of file
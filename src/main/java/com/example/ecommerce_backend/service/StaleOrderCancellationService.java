@@ -0,0 +1,138 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.repository.OrderRepository;
+import com.example.ecommerce_backend.repository.ProductSizeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Background job that cancels PENDING orders which were never paid
+ * and returns their reserved stock.
+ *
+ * Each chunk is claimed with FOR UPDATE SKIP LOCKED and processed in its own
+ * short transaction, so several nodes can share the work and row locks are
+ * never held for longer than one chunk.
+ */
+@Slf4j
+@Service
+public class StaleOrderCancellationService {
+
+    private final OrderRepository orderRepository;
+    private final ProductSizeRepository productSizeRepository;
+    private final CartRevalidationService cartRevalidationService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter cancelledCounter;
+    private final Counter batchCounter;
+    private final Timer batchTimer;
+
+    @Value("${application.order.auto-cancel.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.order.auto-cancel.max-age-minutes:60}")
+    private long maxAgeMinutes;
+
+    @Value("${application.order.auto-cancel.batch-size:100}")
+    private int batchSize;
+
+    @Value("${application.order.auto-cancel.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
+
+    public StaleOrderCancellationService(
+            OrderRepository orderRepository,
+            ProductSizeRepository productSizeRepository,
+            CartRevalidationService cartRevalidationService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.orderRepository = orderRepository;
+        this.productSizeRepository = productSizeRepository;
+        this.cartRevalidationService = cartRevalidationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cancelledCounter = Counter.builder("orders.auto_cancel.cancelled")
+                .description("Stale unpaid orders cancelled by the background job")
+                .register(meterRegistry);
+        this.batchCounter = Counter.builder("orders.auto_cancel.batches")
+                .description("Chunks processed by the stale order job")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("orders.auto_cancel.batch.duration")
+                .description("Time spent cancelling one chunk of stale orders")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${application.order.auto-cancel.interval-ms:60000}",
+            initialDelayString = "${application.order.auto-cancel.interval-ms:60000}"
+    )
+    public void cancelStaleOrders() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(maxAgeMinutes);
+        long started = System.nanoTime();
+        int total = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Timer.Sample sample = Timer.start();
+            int cancelled = cancelBatch(cutoff);
+            sample.stop(batchTimer);
+            if (cancelled == 0) {
+                break;
+            }
+            total += cancelled;
+            if (cancelled < batchSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            log.info("Auto-cancelled {} stale unpaid orders in {} s ({} orders/s)",
+                    total,
+                    String.format("%.2f", seconds),
+                    String.format("%.1f", total / Math.max(seconds, 0.001)));
+        }
+    }
+
+    /**
+     * Claims, cancels and restocks a single chunk in one transaction.
+     * Stock is returned only for the orders the UPDATE actually moved
+     * out of PENDING, so an order cancelled elsewhere is never restocked twice.
+     *
+     * @return number of orders cancelled
+     */
+    private int cancelBatch(LocalDateTime cutoff) {
+        Integer cancelled = transactionTemplate.execute(status -> {
+            List<Long> orderIds = orderRepository.lockStaleUnpaidOrderIds(cutoff, batchSize);
+            if (orderIds.isEmpty()) {
+                return 0;
+            }
+
+            List<Long> cancelledIds = orderRepository.cancelPendingOrders(orderIds, LocalDateTime.now());
+            if (!cancelledIds.isEmpty()) {
+                cartRevalidationService.markStockChanged(
+                        productSizeRepository.restoreStockForOrders(cancelledIds));
+            }
+            return cancelledIds.size();
+        });
+
+        int count = cancelled != null ? cancelled : 0;
+        if (count > 0) {
+            batchCounter.increment();
+            cancelledCounter.increment(count);
+            log.debug("Cancelled chunk of {} stale orders", count);
+        }
+        return count;
+    }
+}
@@ -1,23 +1,50 @@
 package com.example.ecommerce_backend.service;
 
+import com.example.ecommerce_backend.cache.UserDetailsCache;
 import com.example.ecommerce_backend.repository.UserRepository;
+import com.example.ecommerce_backend.security.UserSecurityState;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
     
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
     
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
-        return userRepository.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail)
-                .orElseThrow(() -> new UsernameNotFoundException(
-                        "User not found with username or email: " + usernameOrEmail
-                ));
+        UserSecurityState user = userDetailsCache.get(usernameOrEmail, key ->
+                userRepository.findByUsernameOrEmail(key, key)
+                        .map(UserSecurityState::from)
+                        .orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with username or email: " + usernameOrEmail);
+        }
+        return user;
+    }
+    
+    /**
+     * Called after a successful login whose stored hash uses an older cost,
+     * with the password rehashed at the current one.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserSecurityState state = (UserSecurityState) user;
+        userRepository.updatePassword(state.getId(), newPassword, LocalDateTime.now());
+        userDetailsCache.evict(state.getUsername(), state.getEmail());
+        log.debug("Upgraded password hash for user {}", state.getId());
+        return state.toBuilder().password(newPassword).build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.entity.User;
+import com.example.ecommerce_backend.exception.DuplicateResourceException;
+import com.example.ecommerce_backend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Function;
+
+/**
+ * Creates user rows, relying on the unique constraints on username and
+ * email instead of existence checks before the insert.
+ *
+ * Each insert commits in its own transaction: a failed INSERT aborts the
+ * PostgreSQL transaction it ran in, so the caller's transaction stays
+ * usable and the attempt can be retried. The returned user is detached.
+ */
+@Slf4j
+@Service
+public class UserProvisioningService {
+
+    // Leaves room for a numeric suffix within the 50-character column
+    private static final int MAX_BASE_LENGTH = 40;
+    private static final String DEFAULT_BASE = "user";
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.user.username-allocation-attempts:3}")
+    private int maxAttempts;
+
+    public UserProvisioningService(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @throws DuplicateResourceException if the username or email is taken
+     */
+    public User create(User user) {
+        try {
+            return insert(user);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicate(user, e);
+        }
+    }
+
+    /**
+     * Creates a user under the first free username derived from the base
+     * (john, john1, john2 ...), found with one query per attempt. A name lost
+     * to a concurrent sign-up is retried with a fresh query.
+     *
+     * @param userFactory builds the user for a candidate username
+     * @throws DuplicateResourceException if the email is taken, or no name could be allocated
+     */
+    public User createWithUniqueUsername(String base, Function<String, User> userFactory) {
+        String prefix = sanitize(base);
+        for (int attempt = 1; ; attempt++) {
+            String username = nextFreeUsername(prefix);
+            User user = userFactory.apply(username);
+            try {
+                return insert(user);
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= maxAttempts || !userRepository.existsByUsername(username)) {
+                    throw duplicate(user, e);
+                }
+                log.debug("Username {} taken concurrently, retrying (attempt {})", username, attempt);
+            }
+        }
+    }
+
+    private User insert(User user) {
+        return transactionTemplate.execute(status -> userRepository.save(user));
+    }
+
+    private String nextFreeUsername(String prefix) {
+        Integer suffix = userRepository.findNextUsernameSuffix(prefix, prefix + "%", prefix.length() + 1);
+        return suffix == null || suffix == 0 ? prefix : prefix + suffix;
+    }
+
+    /**
+     * Only reached on a constraint violation, to report which value clashed.
+     */
+    private RuntimeException duplicate(User user, DataIntegrityViolationException cause) {
+        if (userRepository.existsByUsername(user.getUsername())) {
+            return new DuplicateResourceException("Username already exists");
+        }
+        if (userRepository.existsByEmail(user.getEmail())) {
+            return new DuplicateResourceException("Email already exists");
+        }
+        return cause;
+    }
+
+    private static String sanitize(String base) {
+        String prefix = base == null ? "" : base.replaceAll("[^a-zA-Z0-9]", ""); // Remove special chars
+        if (prefix.isEmpty()) {
+            return DEFAULT_BASE;
+        }
+        return prefix.length() > MAX_BASE_LENGTH ? prefix.substring(0, MAX_BASE_LENGTH) : prefix;
+    }
+}
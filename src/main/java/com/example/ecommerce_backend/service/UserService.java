@@ -1,5 +1,7 @@
 package com.example.ecommerce_backend.service;
 
+import com.example.ecommerce_backend.cache.UserDetailsCache;
+import com.example.ecommerce_backend.cache.UserVersionStore;
 import com.example.ecommerce_backend.dto.request.ChangePasswordRequest;
 import com.example.ecommerce_backend.dto.request.UpdateUserRequest;
 import com.example.ecommerce_backend.dto.response.PageResponse;
@@ -9,6 +11,7 @@ import com.example.ecommerce_backend.exception.BadRequestException;
 import com.example.ecommerce_backend.exception.DuplicateResourceException;
 import com.example.ecommerce_backend.exception.ResourceNotFoundException;
 import com.example.ecommerce_backend.repository.UserRepository;
+import com.example.ecommerce_backend.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -19,6 +22,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
@@ -26,12 +30,22 @@ public class UserService {
     
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserVersionStore userVersionStore;
+    private final UserDetailsCache userDetailsCache;
+    private final TransactionTemplate transactionTemplate;
     
     public UserResponse getCurrentUser() {
         User user = getCurrentAuthenticatedUser();
         return mapToUserResponse(user);
     }
     
+    /**
+     * Id of the authenticated user, read from the request principal without a lookup
+     */
+    public Long getCurrentUserId() {
+        return getCurrentPrincipal().getId();
+    }
+    
     public UserResponse getUserById(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
@@ -68,11 +82,14 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         
         // Check authorization
-        User currentUser = getCurrentAuthenticatedUser();
-        if (!currentUser.getId().equals(id) && !currentUser.getRole().name().equals("ADMIN")) {
+        AuthenticatedUser currentUser = getCurrentPrincipal();
+        if (!currentUser.getId().equals(id) && !currentUser.isAdmin()) {
             throw new BadRequestException("You are not authorized to update this user");
         }
         
+        // Evict under the current email before it may change
+        userDetailsCache.evict(user);
+        
         // Update email if provided and different
         if (request.getEmail() != null && !request.getEmail().equals(user.getEmail())) {
             if (userRepository.existsByEmail(request.getEmail())) {
@@ -96,23 +113,34 @@ public class UserService {
         return mapToUserResponse(updatedUser);
     }
     
-    @Transactional
+    /**
+     * Not transactional: both hashes are computed without holding a
+     * connection, then the update runs in a short transaction.
+     */
     public void changePassword(ChangePasswordRequest request) {
-        User user = getCurrentAuthenticatedUser();
+        // Verify new password confirmation
+        if (!request.getNewPassword().equals(request.getConfirmPassword())) {
+            throw new BadRequestException("Passwords do not match");
+        }
         
         // Verify current password
-        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+        String currentHash = getCurrentAuthenticatedUser().getPassword();
+        if (!passwordEncoder.matches(request.getCurrentPassword(), currentHash)) {
             throw new BadRequestException("Current password is incorrect");
         }
         
-        // Verify new password confirmation
-        if (!request.getNewPassword().equals(request.getConfirmPassword())) {
-            throw new BadRequestException("Passwords do not match");
-        }
+        String newHash = passwordEncoder.encode(request.getNewPassword());
         
-        // Update password
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-        userRepository.save(user);
+        // Update password, unless it was changed since it was verified
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = getCurrentAuthenticatedUser();
+            if (!currentHash.equals(user.getPassword())) {
+                throw new BadRequestException("Password was changed concurrently. Please try again.");
+            }
+            user.setPassword(newHash);
+            userRepository.save(user);
+            userDetailsCache.evict(user);
+        });
     }
     
     @Transactional
@@ -121,21 +149,34 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         
         // Check authorization
-        User currentUser = getCurrentAuthenticatedUser();
-        if (!currentUser.getId().equals(id) && !currentUser.getRole().name().equals("ADMIN")) {
+        AuthenticatedUser currentUser = getCurrentPrincipal();
+        if (!currentUser.getId().equals(id) && !currentUser.isAdmin()) {
             throw new BadRequestException("You are not authorized to delete this user");
         }
         
         userRepository.delete(user);
+        userVersionStore.invalidate(id);
+        userDetailsCache.evict(user);
     }
     
     private User getCurrentAuthenticatedUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        return userRepository.findByUsername(username)
+        return userRepository.findById(getCurrentUserId())
                 .orElseThrow(() -> new ResourceNotFoundException("Current user not found"));
     }
     
+    private AuthenticatedUser getCurrentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null) {
+            if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+                return principal;
+            }
+            if (authentication.getPrincipal() instanceof User user) {
+                return AuthenticatedUser.from(user);
+            }
+        }
+        throw new ResourceNotFoundException("Current user not found");
+    }
+    
     private UserResponse mapToUserResponse(User user) {
         return UserResponse.builder()
                 .id(user.getId())
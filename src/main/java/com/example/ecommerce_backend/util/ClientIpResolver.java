@@ -0,0 +1,141 @@
+package com.example.ecommerce_backend.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the client IP of a request.
+ *
+ * X-Forwarded-For is only honoured when the direct peer is a configured
+ * trusted proxy. The header is then read right to left, skipping trusted
+ * hops, and the first untrusted address is the client; everything to its
+ * left is client-supplied and ignored.
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private final List<Cidr> trustedProxies;
+
+    public ClientIpResolver(@Value("${application.security.trusted-proxies:}") String trustedProxies) {
+        List<Cidr> cidrs = new ArrayList<>();
+        for (String entry : trustedProxies.split(",")) {
+            if (!entry.isBlank()) {
+                cidrs.add(Cidr.parse(entry.trim()));
+            }
+        }
+        this.trustedProxies = List.copyOf(cidrs);
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        InetAddress peer = parseLiteral(remote);
+        if (trustedProxies.isEmpty() || peer == null || !isTrusted(peer)) {
+            return remote;
+        }
+
+        List<String> headers = Collections.list(request.getHeaders(FORWARDED_FOR));
+        if (headers.isEmpty()) {
+            return remote;
+        }
+        String[] hops = String.join(",", headers).split(",");
+
+        String client = remote;
+        for (int i = hops.length - 1; i >= 0; i--) {
+            InetAddress hop = parseLiteral(hops[i].trim());
+            if (hop == null) {
+                break; // malformed entry: keep the last address we could trust
+            }
+            client = hop.getHostAddress();
+            if (!isTrusted(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 literal without ever doing a DNS lookup.
+     *
+     * @return null if the value is not an IP literal
+     */
+    public static InetAddress parseLiteral(String value) {
+        if (value == null || !(isIpv4(value) || IPV6.matcher(value).matches())) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(value);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    // Out-of-range octets would otherwise be resolved as a host name
+    private static boolean isIpv4(String value) {
+        if (!IPV4.matcher(value).matches()) {
+            return false;
+        }
+        for (String octet : value.split("\\.")) {
+            if (Integer.parseInt(octet) > 255) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isTrusted(InetAddress address) {
+        for (Cidr cidr : trustedProxies) {
+            if (cidr.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Cidr(byte[] network, int prefixLength) {
+
+        static Cidr parse(String value) {
+            int slash = value.indexOf('/');
+            InetAddress address = parseLiteral(slash < 0 ? value : value.substring(0, slash));
+            if (address == null) {
+                throw new IllegalArgumentException("Invalid trusted proxy: " + value);
+            }
+            byte[] network = address.getAddress();
+            int prefixLength = slash < 0 ? network.length * 8 : Integer.parseInt(value.substring(slash + 1));
+            if (prefixLength < 0 || prefixLength > network.length * 8) {
+                throw new IllegalArgumentException("Invalid trusted proxy prefix: " + value);
+            }
+            return new Cidr(network, prefixLength);
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (bytes[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits);
+            return (bytes[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
@@ -33,6 +33,15 @@ public class CookieUtil {
     @Value("${application.security.cookie.path:/api/v1/auth}")
     private String path;
     
+    @Value("${application.cart.guest.cookie-name:guestCartId}")
+    private String guestCartCookieName;
+    
+    @Value("${application.cart.guest.ttl-hours:24}")
+    private long guestCartTtlHours;
+    
+    // Guest cart cookie must reach both /api/v1/guest-cart and /api/v1/auth (merge on login)
+    private static final String GUEST_CART_COOKIE_PATH = "/api/v1";
+    
     /**
      * Create a secure refresh token cookie
      */
@@ -91,4 +100,50 @@ public class CookieUtil {
         
         response.addHeader("Set-Cookie", cookieValue);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Create the guest cart cookie holding the opaque guest cart id
+     */
+    public void createGuestCartCookie(HttpServletResponse response, String guestCartId) {
+        String cookieValue = String.format("%s=%s; Path=%s; Max-Age=%d; %s; %s; SameSite=%s",
+                guestCartCookieName,
+                guestCartId,
+                GUEST_CART_COOKIE_PATH,
+                guestCartTtlHours * 3600,
+                httpOnly ? "HttpOnly" : "",
+                secure ? "Secure" : "",
+                sameSite
+        );
+        
+        response.addHeader("Set-Cookie", cookieValue);
+    }
+    
+    /**
+     * Get guest cart id from cookie
+     */
+    public Optional<String> getGuestCartIdFromCookie(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return Optional.empty();
+        }
+        
+        return Arrays.stream(request.getCookies())
+                .filter(cookie -> guestCartCookieName.equals(cookie.getName()))
+                .map(Cookie::getValue)
+                .findFirst();
+    }
+    
+    /**
+     * Delete guest cart cookie (after merge into a user cart)
+     */
+    public void deleteGuestCartCookie(HttpServletResponse response) {
+        String cookieValue = String.format("%s=; Path=%s; Max-Age=0; %s; %s; SameSite=%s",
+                guestCartCookieName,
+                GUEST_CART_COOKIE_PATH,
+                httpOnly ? "HttpOnly" : "",
+                secure ? "Secure" : "",
+                sameSite
+        );
+        
+        response.addHeader("Set-Cookie", cookieValue);
+    }
+}
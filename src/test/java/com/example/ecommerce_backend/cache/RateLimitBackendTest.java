@@ -0,0 +1,66 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.cache.RateLimitBackend.Limit;
+import com.example.ecommerce_backend.cache.RateLimitBackend.Probe;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitBackendTest {
+
+    private static final long TAG_MASK = 0xFFFF_FFFF_0000_0000L;
+
+    @Test
+    void packsIpv4AddressesUnderTheIpv4Tag() {
+        assertThat(RateLimitBackend.keyFor("1.2.3.4")).isEqualTo(0xFF00_0000_0102_0304L);
+        assertThat(RateLimitBackend.keyFor("255.255.255.255")).isEqualTo(0xFF00_0000_FFFF_FFFFL);
+        assertThat(RateLimitBackend.keyFor("0.0.0.0")).isEqualTo(RateLimitBackend.IPV4_KEY_TAG);
+    }
+
+    @Test
+    void ipv4MappedIpv6AddressSharesTheIpv4Key() {
+        assertThat(RateLimitBackend.keyFor("::ffff:1.2.3.4")).isEqualTo(RateLimitBackend.keyFor("1.2.3.4"));
+    }
+
+    @Test
+    void ipv6AddressesShareOneKeyPerSlash64() {
+        long key = RateLimitBackend.keyFor("2001:db8:aaaa:bbbb::1");
+
+        assertThat(key).isEqualTo(0x2001_0db8_aaaa_bbbbL);
+        assertThat(RateLimitBackend.keyFor("2001:db8:aaaa:bbbb:ffff:ffff:ffff:ffff")).isEqualTo(key);
+        assertThat(RateLimitBackend.keyFor("2001:db8:aaaa:bbbc::1")).isNotEqualTo(key);
+    }
+
+    @Test
+    void sourceIpv6KeysNeverCarryAnIpv4OrInvalidTag() {
+        assertThat(RateLimitBackend.keyFor("2600::1") & TAG_MASK)
+                .isNotIn(RateLimitBackend.IPV4_KEY_TAG, RateLimitBackend.INVALID_KEY_TAG);
+        assertThat(RateLimitBackend.keyFor("fe80::1") & TAG_MASK)
+                .isNotIn(RateLimitBackend.IPV4_KEY_TAG, RateLimitBackend.INVALID_KEY_TAG);
+        assertThat(RateLimitBackend.keyFor("fd00::1") & TAG_MASK)
+                .isNotIn(RateLimitBackend.IPV4_KEY_TAG, RateLimitBackend.INVALID_KEY_TAG);
+    }
+
+    @Test
+    void nonLiteralsGetAStableInvalidKey() {
+        long key = RateLimitBackend.keyFor("unknown");
+
+        assertThat(key & TAG_MASK).isEqualTo(RateLimitBackend.INVALID_KEY_TAG);
+        assertThat(RateLimitBackend.keyFor("unknown")).isEqualTo(key);
+        assertThat(RateLimitBackend.keyFor(null) & TAG_MASK).isEqualTo(RateLimitBackend.INVALID_KEY_TAG);
+    }
+
+    @Test
+    void fullRefillRoundsUpToWholePeriods() {
+        assertThat(new Limit(100, 10, Duration.ofSeconds(60)).fullRefill()).isEqualTo(Duration.ofMinutes(10));
+        assertThat(new Limit(5, 2, Duration.ofSeconds(1)).fullRefill()).isEqualTo(Duration.ofSeconds(3));
+    }
+
+    @Test
+    void probeFactories() {
+        assertThat(Probe.consumed(7)).isEqualTo(new Probe(true, 7, 0));
+        assertThat(Probe.rejected(1_500)).isEqualTo(new Probe(false, 0, 1_500));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.util.TokenHashUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RefreshTokenFilterBitsTest {
+
+    private final TokenHashUtil tokenHashUtil = new TokenHashUtil();
+
+    @Test
+    void sizesForExpectedInsertionsAndFalsePositiveRate() {
+        // m = -n ln p / (ln 2)^2 = 9586 bits, rounded up to whole words; k = m/n ln 2
+        RefreshTokenFilter.Bits bits = new RefreshTokenFilter.Bits(1_000, 0.01);
+
+        assertThat(bits.bitSize()).isEqualTo(150 * 64L);
+        assertThat(bits.probes()).isEqualTo(7);
+    }
+
+    @Test
+    void tinyFilterStillHasOneWordAndOneProbe() {
+        RefreshTokenFilter.Bits bits = new RefreshTokenFilter.Bits(1, 0.5);
+
+        assertThat(bits.bitSize()).isEqualTo(64);
+        assertThat(bits.probes()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void everyInsertedHashIsAMember() {
+        RefreshTokenFilter.Bits bits = new RefreshTokenFilter.Bits(1_000, 0.01);
+        IntStream.range(0, 1_000).mapToObj(this::hash).forEach(bits::put);
+
+        assertThat(IntStream.range(0, 1_000).mapToObj(this::hash)).allMatch(bits::mightContain);
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        RefreshTokenFilter.Bits bits = new RefreshTokenFilter.Bits(1_000, 0.01);
+        IntStream.range(0, 1_000).mapToObj(this::hash).forEach(bits::put);
+
+        long falsePositives = IntStream.range(1_000, 21_000)
+                .mapToObj(this::hash)
+                .filter(bits::mightContain)
+                .count();
+
+        assertThat(falsePositives / 20_000.0).isLessThan(0.03);
+        assertThat(bits.expectedFalsePositiveRate()).isBetween(0.001, 0.03);
+    }
+
+    @Test
+    void emptyFilterRejectsEverything() {
+        RefreshTokenFilter.Bits bits = new RefreshTokenFilter.Bits(1_000, 0.01);
+
+        assertThat(bits.mightContain(hash(1))).isFalse();
+        assertThat(bits.expectedFalsePositiveRate()).isZero();
+    }
+
+    @Test
+    void reinsertingDoesNotRaiseTheExpectedRate() {
+        RefreshTokenFilter.Bits bits = new RefreshTokenFilter.Bits(1_000, 0.01);
+        bits.put(hash(1));
+        double once = bits.expectedFalsePositiveRate();
+
+        bits.put(hash(1));
+
+        assertThat(bits.expectedFalsePositiveRate()).isEqualTo(once);
+    }
+
+    private String hash(int i) {
+        return tokenHashUtil.hashToken("token-" + i);
+    }
+}
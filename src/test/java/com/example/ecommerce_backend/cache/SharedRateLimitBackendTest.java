@@ -0,0 +1,89 @@
+package com.example.ecommerce_backend.cache;
+
+import com.example.ecommerce_backend.cache.RateLimitBackend.Limit;
+import com.example.ecommerce_backend.cache.RateLimitBackend.Probe;
+import com.example.ecommerce_backend.cache.SharedBucketStore.Grant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedRateLimitBackendTest {
+
+    private static final Limit LIMIT = new Limit(100, 100, Duration.ofMinutes(1));
+    private static final long KEY = 42;
+
+    @Test
+    void leasesDoublingBatchesAndReportsOnlyLeasedTokens() {
+        CountingStore store = new CountingStore(1_000);
+        SharedRateLimitBackend backend = backend(store);
+
+        // Batches of 1, 2, 4: three round trips for seven requests
+        long[] remaining = new long[7];
+        for (int i = 0; i < remaining.length; i++) {
+            Probe probe = backend.tryConsume(KEY);
+            assertThat(probe.consumed()).isTrue();
+            remaining[i] = probe.remainingTokens();
+        }
+
+        assertThat(store.calls.get()).isEqualTo(3);
+        assertThat(remaining).containsExactly(0, 1, 0, 3, 2, 1, 0);
+    }
+
+    @Test
+    void rememberedRejectionSkipsTheStore() {
+        CountingStore store = new CountingStore(0);
+        SharedRateLimitBackend backend = backend(store);
+
+        assertThat(backend.tryConsume(KEY).consumed()).isFalse();
+        assertThat(backend.tryConsume(KEY).consumed()).isFalse();
+        assertThat(store.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failingStoreIsBackedOffWhileRequestsFailOpen() {
+        CountingStore store = new CountingStore(1_000);
+        store.failing = true;
+        SharedRateLimitBackend backend = backend(store);
+
+        for (int i = 0; i < 5; i++) {
+            Probe probe = backend.tryConsume(KEY);
+            assertThat(probe.consumed()).isTrue();
+            assertThat(probe.remainingTokens()).isZero();
+        }
+        assertThat(store.calls.get()).isEqualTo(1);
+
+        // Other clients still get their own attempt
+        backend.tryConsume(KEY + 1);
+        assertThat(store.calls.get()).isEqualTo(2);
+    }
+
+    private static SharedRateLimitBackend backend(SharedBucketStore store) {
+        return new SharedRateLimitBackend(store, LIMIT, 16, 1_000, new SimpleMeterRegistry());
+    }
+
+    private static final class CountingStore implements SharedBucketStore {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private long available;
+        private boolean failing;
+
+        CountingStore(long available) {
+            this.available = available;
+        }
+
+        @Override
+        public synchronized Grant take(long key, long requested) {
+            calls.incrementAndGet();
+            if (failing) {
+                throw new IllegalStateException("store down");
+            }
+            long granted = Math.min(requested, available);
+            available -= granted;
+            return new Grant(granted, available, granted == 0 ? 1_000_000_000L : 0);
+        }
+    }
+}
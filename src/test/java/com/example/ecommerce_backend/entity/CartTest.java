@@ -0,0 +1,120 @@
+package com.example.ecommerce_backend.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CartTest {
+
+    @Test
+    void addItemUpdatesRunningTotals() {
+        Cart cart = new Cart();
+        cart.addItem(item(1L, 2, 10.0));
+        cart.addItem(item(2L, 1, 5.5));
+
+        assertThat(cart.getTotalItems()).isEqualTo(3);
+        assertThat(cart.getUniqueItems()).isEqualTo(2);
+        assertThat(cart.getSubtotal()).isCloseTo(25.5, within(1e-9));
+        assertThat(cart.getTax()).isCloseTo(25.5 * Cart.TAX_RATE, within(1e-9));
+        assertThat(cart.getTotal()).isCloseTo(25.5 * (1 + Cart.TAX_RATE), within(1e-9));
+    }
+
+    @Test
+    void changeQuantityAppliesOnlyTheDelta() {
+        Cart cart = new Cart();
+        CartItem item = item(1L, 2, 10.0);
+        cart.addItem(item);
+        cart.addItem(item(2L, 1, 4.0));
+
+        cart.changeQuantity(item, 5);
+
+        assertThat(item.getQuantity()).isEqualTo(5);
+        assertThat(cart.getTotalItems()).isEqualTo(6);
+        assertThat(cart.getSubtotal()).isCloseTo(54.0, within(1e-9));
+
+        cart.changeQuantity(item, 1);
+
+        assertThat(cart.getTotalItems()).isEqualTo(2);
+        assertThat(cart.getSubtotal()).isCloseTo(14.0, within(1e-9));
+    }
+
+    @Test
+    void removeItemSubtractsItsLineAndDropsItFromTheIndex() {
+        Cart cart = new Cart();
+        CartItem first = item(1L, 2, 10.0);
+        cart.addItem(first);
+        cart.addItem(item(2L, 3, 1.0));
+
+        cart.removeItem(first);
+
+        assertThat(cart.getTotalItems()).isEqualTo(3);
+        assertThat(cart.getSubtotal()).isCloseTo(3.0, within(1e-9));
+        assertThat(cart.findItemBySizeId(1L)).isNull();
+        assertThat(first.getCart()).isNull();
+    }
+
+    @Test
+    void removingAnItemNotInTheCartLeavesTotalsUnchanged() {
+        Cart cart = new Cart();
+        cart.addItem(item(1L, 2, 10.0));
+
+        cart.removeItem(item(9L, 4, 3.0));
+
+        assertThat(cart.getTotalItems()).isEqualTo(2);
+        assertThat(cart.getSubtotal()).isCloseTo(20.0, within(1e-9));
+    }
+
+    @Test
+    void emptyCartHasExactlyZeroSubtotal() {
+        Cart cart = new Cart();
+        CartItem a = item(1L, 3, 0.1);
+        CartItem b = item(2L, 7, 0.7);
+        cart.addItem(a);
+        cart.addItem(b);
+
+        cart.removeItem(a);
+        cart.removeItem(b);
+
+        assertThat(cart.getTotalItems()).isZero();
+        assertThat(cart.getSubtotal()).isEqualTo(0.0);
+    }
+
+    @Test
+    void clearItemsResetsTotalsAndIndex() {
+        Cart cart = new Cart();
+        cart.addItem(item(1L, 2, 10.0));
+        cart.findItemBySizeId(1L);
+
+        cart.clearItems();
+
+        assertThat(cart.getItems()).isEmpty();
+        assertThat(cart.getTotalItems()).isZero();
+        assertThat(cart.getSubtotal()).isEqualTo(0.0);
+        assertThat(cart.findItemBySizeId(1L)).isNull();
+    }
+
+    @Test
+    void indexIsBuiltFromLoadedItems() {
+        CartItem loaded = item(7L, 1, 2.0);
+        Cart cart = Cart.builder()
+                .items(new ArrayList<>(List.of(loaded)))
+                .totalItems(1)
+                .subtotal(2.0)
+                .build();
+
+        assertThat(cart.findItemBySizeId(7L)).isSameAs(loaded);
+        assertThat(cart.findItemBySizeId(8L)).isNull();
+    }
+
+    private static CartItem item(Long sizeId, int quantity, double price) {
+        return CartItem.builder()
+                .productSize(ProductSize.builder().id(sizeId).build())
+                .quantity(quantity)
+                .price(price)
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.ecommerce_backend.entity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work done per cart mutation and response: one line lookup, one quantity
+ * change and reading every total. "streamed" is the previous approach
+ * (linear lookup, each total re-streams the items), "running" the
+ * maintained totals and size index on {@link Cart}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+    @Param({"20"})
+    private int itemCount;
+
+    private Cart cart;
+    private long targetSizeId;
+    private int toggle;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart();
+        for (long i = 1; i <= itemCount; i++) {
+            cart.addItem(CartItem.builder()
+                    .productSize(ProductSize.builder().id(i).build())
+                    .quantity(1 + (int) (i % 3))
+                    .price(9.99 + i)
+                    .build());
+        }
+        targetSizeId = itemCount / 2 + 1;
+    }
+
+    @Benchmark
+    public void streamed(Blackhole bh) {
+        List<CartItem> items = cart.getItems();
+        CartItem item = items.stream()
+                .filter(i -> i.getProductSize().getId().equals(targetSizeId))
+                .findFirst()
+                .orElseThrow();
+        item.setQuantity(nextQuantity());
+
+        int totalItems = items.stream().mapToInt(CartItem::getQuantity).sum();
+        double subtotal = items.stream().mapToDouble(i -> i.getPrice() * i.getQuantity()).sum();
+        double tax = items.stream().mapToDouble(i -> i.getPrice() * i.getQuantity()).sum() * Cart.TAX_RATE;
+        double total = items.stream().mapToDouble(i -> i.getPrice() * i.getQuantity()).sum()
+                + items.stream().mapToDouble(i -> i.getPrice() * i.getQuantity()).sum() * Cart.TAX_RATE;
+        bh.consume(totalItems);
+        bh.consume(subtotal);
+        bh.consume(tax);
+        bh.consume(total);
+    }
+
+    @Benchmark
+    public void running(Blackhole bh) {
+        CartItem item = cart.findItemBySizeId(targetSizeId);
+        cart.changeQuantity(item, nextQuantity());
+
+        bh.consume(cart.getTotalItems());
+        bh.consume(cart.getSubtotal());
+        bh.consume(cart.getTax());
+        bh.consume(cart.getTotal());
+    }
+
+    private int nextQuantity() {
+        toggle ^= 1;
+        return 2 + toggle;
+    }
+}
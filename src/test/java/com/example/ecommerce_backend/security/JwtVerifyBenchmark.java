@@ -0,0 +1,99 @@
+package com.example.ecommerce_backend.security;
+
+import com.example.ecommerce_backend.util.TokenHashUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request from its access token.
+ *
+ * "perCall" is the previous approach: the key and parser are rebuilt and
+ * the token is parsed three times (extractUsername in the filter, then
+ * extractUsername and extractExpiration in isTokenValid). "parseOnce"
+ * verifies once with the pre-built parser, and "verifiedCache" goes
+ * through {@link JwtService#verify}, which serves repeat tokens by hash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private String secretKey;
+    private JwtService jwtService;
+    private JwtParser parser;
+    private UserDetails user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        secretKey = Encoders.BASE64.encode(keyBytes);
+
+        jwtService = new JwtService(new TokenHashUtil(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "secretKey", secretKey);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", TimeUnit.MINUTES.toMillis(15));
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", TimeUnit.DAYS.toMillis(7));
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheSize", 10_000L);
+        jwtService.init();
+
+        parser = Jwts.parser().verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey))).build();
+        user = User.withUsername("benchmark").password("unused").roles("USER").build();
+        token = jwtService.generateToken(Map.of("uid", 1L, "role", "USER", "sv", 0L), user);
+    }
+
+    @Benchmark
+    public boolean perCall() {
+        String username = parseWithNewParser(token).getSubject();
+        boolean valid = parseWithNewParser(token).getSubject().equals(user.getUsername())
+                && !parseWithNewParser(token).getExpiration().before(new Date());
+        return username != null && valid;
+    }
+
+    @Benchmark
+    public boolean parseOnce() {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        return jwtService.isTokenValid(claims, user);
+    }
+
+    @Benchmark
+    public boolean verifiedCache() {
+        return jwtService.isTokenValid(jwtService.verify(token), user);
+    }
+
+    private Claims parseWithNewParser(String jwt) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey)))
+                .build()
+                .parseSignedClaims(jwt)
+                .getPayload();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.exception.RateLimitExceededException;
+import com.example.ecommerce_backend.service.LoginAttemptService.Attempts;
+import com.example.ecommerce_backend.service.LoginAttemptService.Policy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginAttemptServiceTest {
+
+    // 1 s window, 3 free attempts, 100 ms base delay, 1 s lockout cap
+    private static final Policy POLICY = new Policy(1_000, 3, 100, 1_000);
+    private static final long T0 = 10_000;
+
+    private LoginAttemptService service;
+
+    @BeforeEach
+    void setUp() {
+        // 2 free attempts per account, 3 per IP
+        service = new LoginAttemptService(new SimpleMeterRegistry(), 900, 1, 900, 2, 3, 1_000);
+        ReflectionTestUtils.setField(service, "enabled", true);
+    }
+
+    @Test
+    void freeAttemptsDoNotBlock() {
+        Attempts attempts = new Attempts();
+
+        assertThat(attempts.fail(T0, POLICY)).isZero();
+        assertThat(attempts.fail(T0, POLICY)).isZero();
+        assertThat(attempts.blockedFor(T0)).isZero();
+    }
+
+    @Test
+    void delayDoublesPerFailureUpToTheLockout() {
+        Attempts attempts = new Attempts();
+        attempts.fail(T0, POLICY);
+        attempts.fail(T0, POLICY);
+
+        assertThat(attempts.fail(T0, POLICY)).isEqualTo(100);
+        assertThat(attempts.fail(T0, POLICY)).isEqualTo(200);
+        assertThat(attempts.fail(T0, POLICY)).isEqualTo(400);
+        assertThat(attempts.fail(T0, POLICY)).isEqualTo(800);
+        assertThat(attempts.fail(T0, POLICY)).isEqualTo(1_000);
+        assertThat(attempts.fail(T0, POLICY)).isEqualTo(1_000);
+    }
+
+    @Test
+    void blockExpiresWithTime() {
+        Attempts attempts = failTimes(3, T0);
+
+        assertThat(attempts.blockedFor(T0 + 40)).isEqualTo(60);
+        assertThat(attempts.blockedFor(T0 + 100)).isZero();
+    }
+
+    @Test
+    void previousWindowCountsInProportionToItsOverlap() {
+        // Halfway through the next window, 3 old failures still weigh 1.5
+        Attempts halfway = failTimes(3, T0);
+        assertThat(halfway.fail(T0 + 1_500, POLICY)).isEqualTo(100);
+
+        // Near its end they weigh 0.3, so 0.3 + 1 rounds up to 2: still free
+        Attempts late = failTimes(3, T0);
+        assertThat(late.fail(T0 + 1_900, POLICY)).isZero();
+    }
+
+    @Test
+    void failuresOlderThanTwoWindowsAreForgotten() {
+        Attempts attempts = failTimes(5, T0);
+
+        assertThat(attempts.fail(T0 + 2_000, POLICY)).isZero();
+    }
+
+    @Test
+    void blockOutlivesTheWindowReset() {
+        Policy longLockout = new Policy(1_000, 3, 100, 10_000);
+        Attempts attempts = new Attempts();
+        for (int i = 0; i < 8; i++) {
+            attempts.fail(T0, longLockout);
+        }
+        assertThat(attempts.blockedFor(T0)).isEqualTo(3_200);
+
+        // A failure in a fresh window is free again, but does not lift the running block
+        assertThat(attempts.fail(T0 + 2_500, longLockout)).isEqualTo(700);
+    }
+
+    @Test
+    void blocksTheAccountCaseInsensitivelyWithRetryAfter() {
+        service.recordFailure("Alice", "10.0.0.1");
+        service.recordFailure("alice", "10.0.0.2");
+
+        assertThatThrownBy(() -> service.checkAllowed(" ALICE ", "10.0.0.3"))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting(e -> ((RateLimitExceededException) e).getRetryAfterSeconds())
+                .isEqualTo(1L);
+        assertThatCode(() -> service.checkAllowed("bob", "10.0.0.3")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void successClearsTheAccountButNotTheAddress() {
+        service.recordFailure("alice", "10.0.0.1");
+        service.recordFailure("alice", "10.0.0.1");
+        service.recordFailure("bob", "10.0.0.1");
+
+        service.recordSuccess("alice");
+
+        assertThatCode(() -> service.checkAllowed("alice", "10.0.0.9")).doesNotThrowAnyException();
+        assertThatThrownBy(() -> service.checkAllowed("carol", "10.0.0.1"))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    void disabledServiceNeverBlocks() {
+        ReflectionTestUtils.setField(service, "enabled", false);
+        for (int i = 0; i < 10; i++) {
+            service.recordFailure("alice", "10.0.0.1");
+        }
+
+        assertThatCode(() -> service.checkAllowed("alice", "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    private static Attempts failTimes(int times, long now) {
+        Attempts attempts = new Attempts();
+        for (int i = 0; i < times; i++) {
+            attempts.fail(now, POLICY);
+        }
+        return attempts;
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.ecommerce_backend.service;
+
+import com.example.ecommerce_backend.cache.RefreshTokenFilter;
+import com.example.ecommerce_backend.entity.RefreshToken;
+import com.example.ecommerce_backend.entity.User;
+import com.example.ecommerce_backend.repository.RefreshTokenRepository;
+import com.example.ecommerce_backend.util.TokenHashUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Refresh throughput of a user at the active token limit, with each
+ * repository call standing in for one database round trip.
+ *
+ * "perTokenSaves" replays the previous rotation (count, load all active
+ * tokens, sort in Java, save each revoked token, save new and old);
+ * "setBased" is {@link RefreshTokenService#rotate}. The "statements"
+ * counter reports round trips per refresh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RefreshTokenRotationBenchmark {
+
+    private static final int MAX_ACTIVE_TOKENS = 5;
+    private static final AtomicLong USER_IDS = new AtomicLong();
+
+    @Param({"0", "200"})
+    private long roundTripMicros;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Session {
+
+        public long statements;
+
+        private TokenTable table;
+        private RefreshTokenService service;
+        private TokenHashUtil tokenHashUtil;
+        private MockHttpServletRequest request;
+        private String rawToken;
+
+        @Setup(Level.Trial)
+        public void setUp(RefreshTokenRotationBenchmark benchmark) {
+            User user = User.builder().id(USER_IDS.incrementAndGet()).username("user" + USER_IDS.get()).build();
+            table = new TokenTable(this, benchmark.roundTripMicros);
+            RefreshTokenRepository repository = (RefreshTokenRepository) Proxy.newProxyInstance(
+                    RefreshTokenRepository.class.getClassLoader(), new Class<?>[]{RefreshTokenRepository.class}, table);
+
+            tokenHashUtil = new TokenHashUtil();
+            // Filter left disabled (no @Value injection): every hash "might" be active
+            RefreshTokenFilter filter = new RefreshTokenFilter(repository, null, null, new SimpleMeterRegistry());
+            service = new RefreshTokenService(repository, tokenHashUtil, filter);
+            ReflectionTestUtils.setField(service, "refreshTokenExpiration", TimeUnit.DAYS.toMillis(7));
+            ReflectionTestUtils.setField(service, "maxActiveTokens", MAX_ACTIVE_TOKENS);
+            ReflectionTestUtils.setField(service, "tokenRotationEnabled", true);
+            request = new MockHttpServletRequest();
+
+            // Start at the limit, as after logins from several devices
+            for (int i = 0; i < MAX_ACTIVE_TOKENS; i++) {
+                rawToken = service.createRefreshToken(user, request);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void resetCounters() {
+            statements = 0;
+        }
+    }
+
+    @Benchmark
+    public String setBased(Session session) {
+        session.rawToken = session.service.rotate(session.rawToken, session.request).rawToken();
+        return session.rawToken;
+    }
+
+    @Benchmark
+    public String perTokenSaves(Session session) {
+        TokenTable table = session.table;
+        TokenHashUtil tokenHashUtil = session.tokenHashUtil;
+
+        RefreshToken old = table.findByTokenHash(tokenHashUtil.hashToken(session.rawToken)).orElseThrow();
+        User user = old.getUser();
+
+        String newRawToken = tokenHashUtil.generateSecureToken();
+        String newTokenHash = tokenHashUtil.hashToken(newRawToken);
+
+        long active = table.countActiveTokensByUser(user, LocalDateTime.now());
+        if (active >= MAX_ACTIVE_TOKENS) {
+            table.findValidTokensByUser(user, LocalDateTime.now()).stream()
+                    .sorted(Comparator.comparing(RefreshToken::getCreatedAt))
+                    .limit(active - MAX_ACTIVE_TOKENS + 1)
+                    .forEach(token -> {
+                        token.revoke();
+                        table.save(token);
+                    });
+        }
+        table.save(RefreshToken.builder()
+                .tokenHash(newTokenHash)
+                .user(user)
+                .expiresAt(LocalDateTime.now().plusDays(7))
+                .build());
+
+        old.setReplacedByTokenHash(newTokenHash);
+        old.revoke();
+        table.save(old);
+
+        session.rawToken = newRawToken;
+        return newRawToken;
+    }
+
+    /**
+     * One user's refresh tokens. Each call counts as a statement and waits
+     * for the configured round trip; revoked tokens are dropped.
+     */
+    static final class TokenTable implements InvocationHandler {
+
+        private final Session session;
+        private final long roundTripNanos;
+        private final Map<String, RefreshToken> byHash = new HashMap<>();
+        private final List<RefreshToken> active = new ArrayList<>();
+        private long nextId;
+
+        TokenTable(Session session, long roundTripMicros) {
+            this.session = session;
+            this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "findByTokenHash", "findByTokenHashWithUser" -> findByTokenHash((String) args[0]);
+                case "save" -> save((RefreshToken) args[0]);
+                case "revokeIfActive" -> revokeIfActive((Long) args[0], (String) args[1]);
+                case "revokeAllButNewest" -> revokeAllButNewest((Integer) args[1]);
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "TokenTable";
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        }
+
+        Optional<RefreshToken> findByTokenHash(String tokenHash) {
+            roundTrip();
+            return Optional.ofNullable(byHash.get(tokenHash));
+        }
+
+        long countActiveTokensByUser(User user, LocalDateTime now) {
+            roundTrip();
+            return active.size();
+        }
+
+        List<RefreshToken> findValidTokensByUser(User user, LocalDateTime now) {
+            roundTrip();
+            return List.copyOf(active);
+        }
+
+        RefreshToken save(RefreshToken token) {
+            roundTrip();
+            if (token.getId() == null) {
+                token.setId(++nextId);
+                token.setCreatedAt(LocalDateTime.now());
+                byHash.put(token.getTokenHash(), token);
+                active.add(token);
+            } else if (token.isRevoked()) {
+                forget(token);
+            }
+            return token;
+        }
+
+        private int revokeIfActive(Long id, String replacedBy) {
+            roundTrip();
+            for (RefreshToken token : active) {
+                if (token.getId().equals(id)) {
+                    token.setReplacedByTokenHash(replacedBy);
+                    token.revoke();
+                    forget(token);
+                    return 1;
+                }
+            }
+            return 0;
+        }
+
+        private int revokeAllButNewest(int keep) {
+            roundTrip();
+            active.sort(Comparator.comparing(RefreshToken::getCreatedAt)
+                    .thenComparing(RefreshToken::getId).reversed());
+            int revoked = 0;
+            while (active.size() > keep) {
+                RefreshToken token = active.get(active.size() - 1);
+                token.revoke();
+                forget(token);
+                revoked++;
+            }
+            return revoked;
+        }
+
+        private void forget(RefreshToken token) {
+            active.remove(token);
+            byHash.remove(token.getTokenHash());
+        }
+
+        private void roundTrip() {
+            session.statements++;
+            if (roundTripNanos > 0) {
+                LockSupport.parkNanos(roundTripNanos);
+            }
+        }
+    }
+}
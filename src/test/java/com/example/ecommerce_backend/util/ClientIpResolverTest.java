@@ -0,0 +1,105 @@
+package com.example.ecommerce_backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClientIpResolverTest {
+
+    private final ClientIpResolver resolver = new ClientIpResolver("10.0.0.0/8, 172.16.0.0/12, 2001:db8::/32");
+
+    @Test
+    void ignoresForwardedForWithoutTrustedProxies() {
+        ClientIpResolver untrusting = new ClientIpResolver("");
+
+        assertThat(untrusting.resolve(request("10.0.0.1", "1.2.3.4"))).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void ignoresForwardedForFromAnUntrustedPeer() {
+        assertThat(resolver.resolve(request("203.0.113.7", "1.2.3.4"))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void usesRemoteAddressWhenTrustedPeerSendsNoHeader() {
+        assertThat(resolver.resolve(request("10.0.0.1"))).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void takesTheFirstUntrustedHopFromTheRight() {
+        // Left of the client hop is whatever the client sent: ignored
+        MockHttpServletRequest request = request("10.0.0.1", "6.6.6.6, 1.2.3.4, 172.20.1.1, 10.1.2.3");
+
+        assertThat(resolver.resolve(request)).isEqualTo("1.2.3.4");
+    }
+
+    @Test
+    void joinsRepeatedHeadersInOrder() {
+        MockHttpServletRequest request = request("10.0.0.1", "6.6.6.6", "1.2.3.4, 10.9.9.9");
+
+        assertThat(resolver.resolve(request)).isEqualTo("1.2.3.4");
+    }
+
+    @Test
+    void stopsAtAMalformedHop() {
+        assertThat(resolver.resolve(request("10.0.0.1", "1.2.3.4, evil.example.com"))).isEqualTo("10.0.0.1");
+        assertThat(resolver.resolve(request("10.0.0.1", "1.2.3.4, 10.0.0.2, unknown"))).isEqualTo("10.0.0.1");
+        assertThat(resolver.resolve(request("10.0.0.1", "garbage, 1.2.3.4, 10.0.0.2"))).isEqualTo("1.2.3.4");
+    }
+
+    @Test
+    void fallsBackToTheLeftmostHopWhenAllAreTrusted() {
+        assertThat(resolver.resolve(request("10.0.0.1", "10.0.0.3, 10.0.0.2"))).isEqualTo("10.0.0.3");
+    }
+
+    @Test
+    void matchesPrefixesOnBitBoundaries() {
+        assertThat(resolver.resolve(request("172.31.255.255", "1.2.3.4"))).isEqualTo("1.2.3.4");
+        assertThat(resolver.resolve(request("172.32.0.1", "1.2.3.4"))).isEqualTo("172.32.0.1");
+        assertThat(resolver.resolve(request("172.15.255.255", "1.2.3.4"))).isEqualTo("172.15.255.255");
+    }
+
+    @Test
+    void handlesIpv6PeersAndHops() {
+        assertThat(resolver.resolve(request("2001:db8:1::1", "2001:db8::5, 2600::1")))
+                .isEqualTo("2600:0:0:0:0:0:0:1");
+        assertThat(resolver.resolve(request("2001:db9::1", "1.2.3.4"))).isEqualTo("2001:db9::1");
+    }
+
+    @Test
+    void singleAddressIsTrustedAsAFullLengthPrefix() {
+        ClientIpResolver single = new ClientIpResolver("192.0.2.10");
+
+        assertThat(single.resolve(request("192.0.2.10", "1.2.3.4"))).isEqualTo("1.2.3.4");
+        assertThat(single.resolve(request("192.0.2.11", "1.2.3.4"))).isEqualTo("192.0.2.11");
+    }
+
+    @Test
+    void rejectsInvalidTrustedProxyConfiguration() {
+        assertThatThrownBy(() -> new ClientIpResolver("proxy.internal"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ClientIpResolver("10.0.0.0/33"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void parsesLiteralsWithoutNameLookups() {
+        assertThat(ClientIpResolver.parseLiteral("1.2.3.4")).isNotNull();
+        assertThat(ClientIpResolver.parseLiteral("::1")).isNotNull();
+        assertThat(ClientIpResolver.parseLiteral("localhost")).isNull();
+        assertThat(ClientIpResolver.parseLiteral("999.1.1.1")).isNull();
+        assertThat(ClientIpResolver.parseLiteral("")).isNull();
+        assertThat(ClientIpResolver.parseLiteral(null)).isNull();
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String... forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        for (String value : forwardedFor) {
+            request.addHeader("X-Forwarded-For", value);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.ecommerce_backend.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation, hashing and verification on eight threads, as on
+ * every login, refresh and logout. "legacy*" replays the previous
+ * implementation (SecureRandom and MessageDigest per call, hex built with
+ * Integer.toHexString, comparison re-encoding both hex strings).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class TokenHashBenchmark {
+
+    private final TokenHashUtil tokenHashUtil = new TokenHashUtil();
+
+    private String token;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        token = tokenHashUtil.generateSecureToken();
+        hash = tokenHashUtil.hashToken(token);
+    }
+
+    @Benchmark
+    public String generate() {
+        return tokenHashUtil.generateSecureToken();
+    }
+
+    @Benchmark
+    public String hash() {
+        return tokenHashUtil.hashToken(token);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return tokenHashUtil.verifyToken(token, hash);
+    }
+
+    @Benchmark
+    public String legacyGenerate() {
+        byte[] randomBytes = new byte[64];
+        new SecureRandom().nextBytes(randomBytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+    }
+
+    @Benchmark
+    public String legacyHash() throws NoSuchAlgorithmException {
+        return legacyHashToken(token);
+    }
+
+    @Benchmark
+    public boolean legacyVerify() throws NoSuchAlgorithmException {
+        byte[] a = legacyHashToken(token).getBytes(StandardCharsets.UTF_8);
+        byte[] b = hash.getBytes(StandardCharsets.UTF_8);
+        if (a.length != b.length) {
+            return false;
+        }
+        int result = 0;
+        for (int i = 0; i < a.length; i++) {
+            result |= a[i] ^ b[i];
+        }
+        return result == 0;
+    }
+
+    private static String legacyHashToken(String value) throws NoSuchAlgorithmException {
+        byte[] hashBytes = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(2 * hashBytes.length);
+        for (byte b : hashBytes) {
+            String digit = Integer.toHexString(0xff & b);
+            if (digit.length() == 1) {
+                hex.append('0');
+            }
+            hex.append(digit);
+        }
+        return hex.toString();
+    }
+}
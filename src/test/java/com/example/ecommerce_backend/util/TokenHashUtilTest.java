@@ -0,0 +1,92 @@
+package com.example.ecommerce_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenHashUtilTest {
+
+    private final TokenHashUtil tokenHashUtil = new TokenHashUtil();
+
+    @Test
+    void hashesAreLowercaseHexSha256() {
+        assertThat(tokenHashUtil.hashToken("abc"))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        assertThat(tokenHashUtil.hashToken(""))
+                .isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+    }
+
+    @Test
+    void repeatedHashingOnOneThreadIsStable() {
+        String first = tokenHashUtil.hashToken("token");
+        tokenHashUtil.hashToken("something else");
+
+        assertThat(tokenHashUtil.hashToken("token")).isEqualTo(first);
+    }
+
+    @Test
+    void generatedTokensAreUrlSafe512BitValues() {
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String token = tokenHashUtil.generateSecureToken();
+            assertThat(token).matches("[A-Za-z0-9_-]+");
+            assertThat(Base64.getUrlDecoder().decode(token)).hasSize(64);
+            tokens.add(token);
+        }
+        assertThat(tokens).hasSize(100);
+    }
+
+    @Test
+    void verifyAcceptsTheMatchingHashInEitherCase() {
+        String token = tokenHashUtil.generateSecureToken();
+        String hash = tokenHashUtil.hashToken(token);
+
+        assertThat(tokenHashUtil.verifyToken(token, hash)).isTrue();
+        assertThat(tokenHashUtil.verifyToken(token, hash.toUpperCase())).isTrue();
+    }
+
+    @Test
+    void verifyRejectsMismatchedMalformedAndMissingInput() {
+        String hash = tokenHashUtil.hashToken("token");
+
+        assertThat(tokenHashUtil.verifyToken("other", hash)).isFalse();
+        assertThat(tokenHashUtil.verifyToken("token", hash.substring(2))).isFalse();
+        assertThat(tokenHashUtil.verifyToken("token", "not hex")).isFalse();
+        assertThat(tokenHashUtil.verifyToken("token", "abc")).isFalse();
+        assertThat(tokenHashUtil.verifyToken(null, hash)).isFalse();
+        assertThat(tokenHashUtil.verifyToken("token", null)).isFalse();
+    }
+
+    @Test
+    void concurrentHashingMatchesSingleThreadedResults() throws Exception {
+        List<String> inputs = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            inputs.add("token-" + i);
+            expected.add(tokenHashUtil.hashToken("token-" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> inputs.stream().map(tokenHashUtil::hashToken).toList()));
+            }
+            for (Future<List<String>> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}